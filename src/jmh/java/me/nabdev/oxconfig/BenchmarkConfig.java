@@ -0,0 +1,134 @@
+package me.nabdev.oxconfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A config with a parametrized number of keys and modes, registered headless
+ * so the benchmarks run without a robot, the HAL or NetworkTables.
+ *
+ * OxConfig keeps its registry in static fields, so every parameter combination
+ * needs its own JVM. JMH forks one for each by default, don't run the
+ * benchmarks with forks set to 0.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkConfig {
+    /**
+     * How many keys are registered
+     */
+    @Param({ "100", "1000", "10000" })
+    public int keys;
+
+    /**
+     * How many modes there are, including simulation
+     */
+    @Param({ "3", "10" })
+    public int modes;
+
+    /**
+     * Whether the keys are standalone parameters, which are stored with a comment,
+     * or class parameters, which are stored without one (in classes of 5)
+     */
+    @Param({ "true", "false" })
+    public boolean comments;
+
+    static final int paramsPerClass = 5;
+
+    final Map<String, ConfigurableParameter<?>> parameters = new LinkedHashMap<>();
+    final Map<String, ConfigurableClass> classes = new LinkedHashMap<>();
+    final Map<String, Configurable<?>> configValues = new LinkedHashMap<>();
+    final List<String> keyList = new ArrayList<>();
+
+    // The fully ensured config with the default values, and the same config with
+    // every value changed
+    ConfigTable.Snapshot defaultState;
+    ConfigTable.Snapshot changedState;
+
+    /**
+     * Registers the keys and builds the configs
+     *
+     * @throws Exception If the temporary config file can't be created
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path path = Files.createTempFile("oxconfig-bench", ".json");
+        path.toFile().deleteOnExit();
+        Headless.configure(path);
+
+        String[] modeList = new String[modes - 1];
+        for (int i = 0; i < modeList.length; i++) {
+            modeList[i] = "mode" + i;
+        }
+        OxConfig.setModeList(modeList);
+        ConfigTable.load("{}");
+        OxConfig.modeSelector = new ModeSelector();
+        configValues.put("root/mode", OxConfig.modeSelector.modeParam);
+
+        if (comments) {
+            for (int i = 0; i < keys; i++) {
+                String key = "bench/param" + i;
+                ConfigurableDouble param = new ConfigurableDouble(i, key);
+                parameters.put(key, param);
+                configValues.put(key, param);
+                keyList.add(key);
+            }
+        } else {
+            for (int i = 0; i < keys; i += paramsPerClass) {
+                BenchmarkClass benchmarkClass = new BenchmarkClass("bench" + i, i);
+                classes.put(benchmarkClass.getKey(), benchmarkClass);
+                for (ConfigurableClassParam<?> param : benchmarkClass.getParameters()) {
+                    configValues.put(param.getKey(), param);
+                    keyList.add(param.getKey());
+                }
+            }
+        }
+
+        // Ensures every key, leaving the config in the state it would be on disk
+        OxConfig.reloadConfig();
+        defaultState = ConfigTable.snapshot();
+        // Add 1 to the value of every key in every mode
+        for (String mode : ModeSelector.modes) {
+            for (String key : keyList) {
+                JsonUtils.modifyValue(mode, key, ((Number) JsonUtils.getRawValue(mode, key)).doubleValue() + 1);
+            }
+        }
+        changedState = ConfigTable.snapshot();
+        ConfigTable.restore(defaultState);
+    }
+
+    /**
+     * A class with paramsPerClass double parameters
+     */
+    static class BenchmarkClass implements ConfigurableClass {
+        private final String key;
+        private final List<ConfigurableClassParam<?>> params = new ArrayList<>();
+
+        BenchmarkClass(String key, int firstValue) {
+            this.key = key;
+            for (int i = 0; i < paramsPerClass; i++) {
+                params.add(new ConfigurableClassDouble(this, firstValue + i, "param" + i));
+            }
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return params;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.nabdev.oxconfig;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Benchmarks JsonUtils.ensureExists() for every key, as done on startup
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnsureBenchmark {
+    /**
+     * Ensures every key into an empty config, so every key is added. Includes
+     * clearing the config.
+     *
+     * @param state The registered config
+     */
+    @Benchmark
+    public void ensureMissing(BenchmarkConfig state) {
+        ConfigTable.load("{}");
+        ensureAll(state);
+    }
+
+    /**
+     * Ensures every key into a config that already has them all
+     *
+     * @param state The registered config
+     */
+    @Benchmark
+    public void ensureExisting(BenchmarkConfig state) {
+        ensureAll(state);
+    }
+
+    private static void ensureAll(BenchmarkConfig state) {
+        for (String key : state.keyList) {
+            JsonUtils.ensureExists(key, toJson(state.configValues.get(key)));
+        }
+    }
+
+    private static <T> Object toJson(Configurable<T> configurable) {
+        return configurable.getCodec().toJson(configurable.get());
+    }
+}
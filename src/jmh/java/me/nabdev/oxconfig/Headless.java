@@ -0,0 +1,21 @@
+package me.nabdev.oxconfig;
+
+import java.nio.file.Path;
+
+/**
+ * Sets up OxConfig to run without a robot, the HAL or NetworkTables
+ */
+class Headless {
+    /**
+     * Reads and writes the config at the given path instead of the deploy
+     * directory, treats the robot as real so the startup cache is used like on
+     * the robot, and disables logging, which reports through the driver station
+     *
+     * @param path The path of the config file
+     */
+    static void configure(Path path) {
+        OxConfig.setConfigPath(path);
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+}
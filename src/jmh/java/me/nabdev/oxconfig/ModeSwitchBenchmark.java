@@ -0,0 +1,54 @@
+package me.nabdev.oxconfig;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks switching between two modes that differ in every changeEvery-th
+ * key, the way a mode switch from robot code or NT reloads the config
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModeSwitchBenchmark {
+    static final int changeEvery = 10;
+
+    private boolean second = false;
+
+    /**
+     * Changes every changeEvery-th key of the second mode, and applies the first
+     *
+     * @param state The registered config
+     */
+    @Setup(Level.Trial)
+    public void setup(BenchmarkConfig state) {
+        ConfigTable.restore(state.defaultState);
+        String mode = ModeSelector.modes[1];
+        for (int i = 0; i < state.keyList.size(); i += changeEvery) {
+            String key = state.keyList.get(i);
+            JsonUtils.modifyValue(mode, key, ((Number) JsonUtils.getRawValue(mode, key)).doubleValue() + 1);
+        }
+        JsonUtils.modifyMode(ModeSelector.modes[0]);
+        // Keys are only ensured on startup by default, which BenchmarkConfig did
+        OxConfig.setEnsureMode(OxConfig.EnsureMode.Never);
+        OxConfig.reloadConfig();
+    }
+
+    /**
+     * Switches to the other mode
+     */
+    @Benchmark
+    public void switchMode() {
+        second = !second;
+        JsonUtils.modifyMode(ModeSelector.modes[second ? 1 : 0]);
+        OxConfig.reloadConfig();
+    }
+}
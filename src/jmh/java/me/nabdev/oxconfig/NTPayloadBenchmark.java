@@ -0,0 +1,53 @@
+package me.nabdev.oxconfig;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Benchmarks building the payloads NT4Interface publishes. Publishing itself
+ * is left out, so no NetworkTables instance is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NTPayloadBenchmark {
+    /**
+     * Builds the Params payload (empty when the keys are class parameters)
+     *
+     * @param state The registered config
+     * @return The payload
+     */
+    @Benchmark
+    public String updateParameters(BenchmarkConfig state) {
+        return NTPayloads.buildParameters(state.parameters).toString();
+    }
+
+    /**
+     * Builds the Classes payload (empty when the keys are standalone parameters)
+     *
+     * @param state The registered config
+     * @return The payload
+     */
+    @Benchmark
+    public String updateClasses(BenchmarkConfig state) {
+        return NTPayloads.buildClasses(state.classes).toString();
+    }
+
+    /**
+     * Builds a delta for a single edited key, the common case when tuning
+     *
+     * @param state The registered config
+     * @return The payload
+     */
+    @Benchmark
+    public String publishDelta(BenchmarkConfig state) {
+        List<String> keys = state.keyList.subList(0, 1);
+        JSONArray changes = NTPayloads.buildDeltaChanges(keys, state.configValues);
+        return changes.toString();
+    }
+}
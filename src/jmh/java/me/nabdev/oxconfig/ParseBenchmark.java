@@ -0,0 +1,86 @@
+package me.nabdev.oxconfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks loading the config file contents, as done on startup and on every
+ * reload from file, either every mode or only the active one, and loading the
+ * ConfigCache of the same config. Parsing
+ * into a JSONObject tree is included for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParseBenchmark {
+    private String content;
+    private Path cachePath;
+    private long hash;
+
+    /**
+     * Serializes the registered config to get the file contents and the cache
+     *
+     * @param state The registered config
+     * @throws Exception If the cache can't be written
+     */
+    @Setup(Level.Trial)
+    public void setup(BenchmarkConfig state) throws Exception {
+        JsonWriter writer = new JsonWriter();
+        ConfigCache.Encoder encoder = new ConfigCache.Encoder();
+        writer.reset(true);
+        ConfigTable.snapshot().write(writer, encoder);
+        content = writer.toString();
+        hash = writer.hash();
+        cachePath = Files.createTempFile("oxconfig-bench", ".cache");
+        cachePath.toFile().deleteOnExit();
+        ConfigCache.write(cachePath, hash, encoder);
+    }
+
+    /**
+     * Loads the config into the ConfigTable with ConfigParser
+     */
+    @Benchmark
+    public void loadStreaming() {
+        ConfigTable.load(content);
+    }
+
+    /**
+     * Loads the config into the ConfigTable with ConfigParser, parsing only the
+     * first mode
+     */
+    @Benchmark
+    public void loadActiveMode() {
+        ConfigTable.load(content, ModeSelector.modes[0]);
+    }
+
+    /**
+     * Loads the config from the memory mapped cache
+     *
+     * @return Whether the cache was loaded
+     */
+    @Benchmark
+    public boolean loadCache() {
+        return ConfigCache.load(cachePath, hash);
+    }
+
+    /**
+     * Parses the config into a JSONObject tree
+     *
+     * @return The tree
+     */
+    @Benchmark
+    public JSONObject parseTree() {
+        return new JSONObject(content);
+    }
+}
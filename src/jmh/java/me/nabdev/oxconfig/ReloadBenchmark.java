@@ -0,0 +1,45 @@
+package me.nabdev.oxconfig;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks OxConfig.reloadConfig(), which runs on every reload and mode
+ * switch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReloadBenchmark {
+    private boolean changed = false;
+
+    /**
+     * Reloads a config where nothing changed, so every setter is skipped
+     *
+     * @param state The registered config
+     */
+    @Benchmark
+    public void reloadUnchanged(BenchmarkConfig state) {
+        OxConfig.reloadConfig();
+    }
+
+    /**
+     * Reloads a config where every value changed, alternating between two configs
+     * so every setter fires on each reload. Includes restoring the values, which
+     * only swaps in the rows of the snapshot.
+     *
+     * @param state The registered config
+     */
+    @Benchmark
+    public void reloadChanged(BenchmarkConfig state) {
+        changed = !changed;
+        ConfigTable.restore(changed ? state.changedState : state.defaultState);
+        OxConfig.reloadConfig();
+    }
+}
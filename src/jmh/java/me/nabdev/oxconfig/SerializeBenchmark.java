@@ -0,0 +1,41 @@
+package me.nabdev.oxconfig;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks ConfigTable.Snapshot.write(), which serializes the config for the
+ * config file and the Raw NT entry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializeBenchmark {
+    /**
+     * Whether to pretty print the JSON, or minify it
+     */
+    @Param({ "true", "false" })
+    public boolean pretty;
+
+    private final JsonWriter writer = new JsonWriter();
+
+    /**
+     * Serializes the whole config into a reused buffer
+     *
+     * @param state The registered config
+     * @return The length of the serialized config
+     */
+    @Benchmark
+    public int serialize(BenchmarkConfig state) {
+        writer.reset(pretty);
+        ConfigTable.snapshot().write(writer);
+        return writer.length();
+    }
+}
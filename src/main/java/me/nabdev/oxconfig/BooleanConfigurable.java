@@ -0,0 +1,11 @@
+package me.nabdev.oxconfig;
+
+/**
+ * A configurable that stores a primitive boolean, which OxConfig can read and
+ * set without boxing
+ */
+interface BooleanConfigurable {
+    public boolean getAsBoolean();
+
+    public void setBoolean(boolean val);
+}
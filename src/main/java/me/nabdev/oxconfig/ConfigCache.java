@@ -0,0 +1,296 @@
+package me.nabdev.oxconfig;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import org.json.JSONObject;
+
+/**
+ * A binary copy of the loaded config, kept next to the config file as
+ * config.json.cache. It stores the hash of the config file it was made from,
+ * and as long as the config file still has that hash, startup loads the cache
+ * (memory mapped) instead of parsing the JSON.
+ *
+ * The cache has a header (magic, version, hash of the config file), the
+ * contents written by ConfigTable, and a CRC32C of the contents. A cache for a
+ * different config file or different modes is ignored, and a corrupt one is
+ * ignored with a warning, in both cases the config file is parsed as usual.
+ */
+class ConfigCache {
+    private static final int magic = 0x4F58434B;
+    private static final int version = 3;
+
+    // Value types
+    private static final byte typeInt = 0;
+    private static final byte typeLong = 1;
+    private static final byte typeDouble = 2;
+    private static final byte typeTrue = 3;
+    private static final byte typeFalse = 4;
+    private static final byte typeString = 5;
+    private static final byte typeNull = 6;
+    // Anything else (arrays, objects), stored as JSON text
+    private static final byte typeJson = 7;
+    // Decimals, and whole numbers too big for a long, stored as their text so
+    // they keep their exact value
+    private static final byte typeBigDecimal = 8;
+    private static final byte typeBigInteger = 9;
+
+    /**
+     * Whether the cache is read on startup and written with the config file, see
+     * OxConfig.useStartupCache()
+     */
+    static boolean enabled = true;
+
+    /**
+     * Gets the path of the cache for a config file
+     *
+     * @param configPath The path of the config file
+     * @return The path of the cache
+     */
+    static Path pathFor(Path configPath) {
+        return configPath.resolveSibling(configPath.getFileName() + ".cache");
+    }
+
+    /**
+     * Hashes the contents of a config file
+     *
+     * @param content The contents
+     * @param length  The number of bytes of content
+     * @return The CRC32C of the content in the upper 32 bits, and the length in
+     *         the lower 32 bits
+     */
+    static long hash(byte[] content, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(content, 0, length);
+        return (crc.getValue() << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Loads the cache into the ConfigTable if it was made from a config file with
+     * the given hash
+     *
+     * @param cachePath The path of the cache
+     * @param jsonHash  The hash of the config file, see hash()
+     * @return Whether the cache was loaded
+     */
+    static boolean load(Path cachePath, long jsonHash) {
+        if (!Files.exists(cachePath))
+            return false;
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 20 || in.getInt() != magic || in.getInt() != version) {
+                Logger.logInfo("Config cache is from another version, ignoring it");
+                return false;
+            }
+            if (in.getLong() != jsonHash) {
+                Logger.logInfo("Config file changed since the cache was written, ignoring it");
+                return false;
+            }
+            int end = in.limit() - 4;
+            ByteBuffer body = in.duplicate();
+            body.limit(end);
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            if ((int) crc.getValue() != in.getInt(end)) {
+                Logger.logWarning("Config cache is corrupt, ignoring it");
+                return false;
+            }
+            in.limit(end);
+            if (!ConfigTable.loadCache(in)) {
+                Logger.logInfo("Modes changed since the cache was written, ignoring it");
+                return false;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Logger.logWarning("Failed to read config cache, ignoring it: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a cache, replacing the previous one atomically
+     *
+     * @param cachePath The path of the cache
+     * @param jsonHash  The hash of the config file it was made from
+     * @param encoder   The contents written by ConfigTable
+     * @throws IOException If the write fails
+     */
+    static void write(Path cachePath, long jsonHash, Encoder encoder) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putInt(magic).putInt(version).putLong(jsonHash).flip();
+        ByteBuffer body = encoder.buffer.duplicate();
+        body.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        ByteBuffer footer = ByteBuffer.allocate(4);
+        footer.putInt((int) crc.getValue()).flip();
+
+        Path tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : new ByteBuffer[] { header, body, footer }) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tempPath, cachePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a string written by Encoder.putString()
+     *
+     * @param in The buffer to read from
+     * @return The string
+     * @throws BufferUnderflowException If the buffer ends early
+     */
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a value written by Encoder.putValue()
+     *
+     * @param in The buffer to read from
+     * @return The value, as the same type ConfigParser produces
+     * @throws BufferUnderflowException If the buffer ends early
+     * @throws IllegalStateException    If the value type is unknown
+     */
+    static Object getValue(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case typeInt:
+                return in.getInt();
+            case typeLong:
+                return in.getLong();
+            case typeDouble:
+                return in.getDouble();
+            case typeTrue:
+                return Boolean.TRUE;
+            case typeFalse:
+                return Boolean.FALSE;
+            case typeString:
+                return getString(in);
+            case typeNull:
+                return JSONObject.NULL;
+            case typeJson:
+                return ConfigParser.parseValue(getString(in));
+            case typeBigDecimal:
+                return new BigDecimal(getString(in));
+            case typeBigInteger:
+                return new BigInteger(getString(in));
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Builds the contents of a cache in a buffer that is kept between uses
+     */
+    static class Encoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(8192);
+        private JsonWriter jsonWriter = null;
+
+        /**
+         * Clears the buffer, keeping its memory for the next use
+         */
+        void reset() {
+            buffer.clear();
+        }
+
+        Encoder putByte(int value) {
+            ensureCapacity(1);
+            buffer.put((byte) value);
+            return this;
+        }
+
+        Encoder putInt(int value) {
+            ensureCapacity(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        /**
+         * Writes a string as its UTF-8 length and bytes
+         *
+         * @param value The string
+         * @return This encoder
+         */
+        Encoder putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        /**
+         * Writes a value as stored in the config
+         *
+         * @param value The value
+         * @return This encoder
+         */
+        Encoder putValue(Object value) {
+            ensureCapacity(9);
+            if (value instanceof Integer) {
+                buffer.put(typeInt).putInt((Integer) value);
+            } else if (value instanceof Long) {
+                buffer.put(typeLong).putLong((Long) value);
+            } else if (value instanceof Double) {
+                buffer.put(typeDouble).putDouble((Double) value);
+            } else if (value instanceof BigDecimal) {
+                buffer.put(typeBigDecimal);
+                putString(value.toString());
+            } else if (value instanceof BigInteger) {
+                buffer.put(typeBigInteger);
+                putString(value.toString());
+            } else if (value instanceof Boolean) {
+                buffer.put((Boolean) value ? typeTrue : typeFalse);
+            } else if (value instanceof String) {
+                buffer.put(typeString);
+                putString((String) value);
+            } else if (value == null || JSONObject.NULL.equals(value)) {
+                buffer.put(typeNull);
+            } else {
+                if (jsonWriter == null)
+                    jsonWriter = new JsonWriter();
+                jsonWriter.reset(false);
+                jsonWriter.value(value);
+                buffer.put(typeJson);
+                putString(jsonWriter.toString());
+            }
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (buffer.remaining() >= extra)
+                return;
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
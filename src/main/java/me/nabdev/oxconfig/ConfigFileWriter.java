@@ -0,0 +1,264 @@
+package me.nabdev.oxconfig;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the config file in the background. Bursts of edits are coalesced into
+ * a single write, and the config is only serialized when the write happens,
+ * from the latest committed ConfigTable.Snapshot into a buffer reused for
+ * every write. Each write goes to a temporary file
+ * that is synced and atomically renamed over the config, and the directory is
+ * synced after the rename, so a brownout can never leave a truncated or missing
+ * config behind. The config file is backed up the first time it is replaced,
+ * so the rotated backups hold the config of previous runs rather than of
+ * every write. The ConfigCache is written along with the config file.
+ */
+class ConfigFileWriter {
+    private final Path path;
+    private final Path tempPath;
+    private final Path cachePath;
+    private final ScheduledExecutorService executor;
+    // Held for a whole write so two flushes can never write out of order
+    private final Object writeLock = new Object();
+
+    // Only used while holding writeLock
+    private final JsonWriter jsonWriter = new JsonWriter();
+    private final ConfigCache.Encoder cacheEncoder = new ConfigCache.Encoder();
+
+    // Whether the config changed since it was last written
+    private boolean writePending = false;
+    // The hash of the config file to write only the cache for, null if none
+    private Long pendingCacheHash = null;
+    // The committed version when the cache write was requested. The load it is
+    // for is committed after that.
+    private long pendingCacheAfter = -1;
+    private boolean writeScheduled = false;
+    // Cleared if the platform can't sync directories, only used while holding
+    // writeLock
+    private boolean canSyncDirectory = true;
+    // Whether the backups were rotated by this writer, only used while holding
+    // writeLock
+    private boolean rotatedBackups = false;
+
+    /**
+     * How long to wait after an edit before writing, so more edits can be
+     * coalesced into the same write
+     */
+    static long debounceMs = 250;
+    /**
+     * How many previous versions of the config file to keep
+     */
+    static int backupCount = 3;
+
+    ConfigFileWriter(Path path) {
+        this.path = path;
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.cachePath = ConfigCache.pathFor(path);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("OxConfig Writer");
+            thread.setDaemon(true);
+            thread.setPriority(3);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes any pending changes and stops the writer thread, once the writer is
+     * replaced. Changes requested after this are never written.
+     */
+    void close() {
+        executor.shutdown();
+        flush();
+    }
+
+    /**
+     * Schedules the config to be written. If a write is already scheduled, it
+     * will include these changes too.
+     */
+    synchronized void requestWrite() {
+        writePending = true;
+        schedule();
+    }
+
+    /**
+     * Schedules only the cache to be written, for a config that was loaded from
+     * the config file and not changed since. If the config is written before
+     * then, the cache is written with it instead.
+     *
+     * @param jsonHash The hash of the config file
+     */
+    synchronized void requestCacheWrite(long jsonHash) {
+        if (!OxConfig.useStartupCache())
+            return;
+        pendingCacheHash = jsonHash;
+        pendingCacheAfter = ConfigTable.latestVersion();
+        schedule();
+    }
+
+    private void schedule() {
+        if (writeScheduled || executor.isShutdown())
+            return;
+        writeScheduled = true;
+        executor.schedule(this::flush, debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Immediately writes any pending changes on the calling thread
+     */
+    void flush() {
+        synchronized (writeLock) {
+            Long cacheHash;
+            long cacheAfter;
+            synchronized (this) {
+                writeScheduled = false;
+                if (!writePending && pendingCacheHash == null)
+                    return;
+                cacheHash = writePending ? null : pendingCacheHash;
+                cacheAfter = pendingCacheAfter;
+                writePending = false;
+                pendingCacheHash = null;
+            }
+            ConfigTable.Snapshot snapshot = ConfigTable.committed();
+            if (snapshot == null) {
+                // Nothing was loaded yet, so there is nothing to write
+                Logger.logWarning("Skipped writing the config file before the config was loaded");
+                return;
+            }
+            if (cacheHash != null) {
+                writeCacheOnly(snapshot, cacheHash, cacheAfter);
+                return;
+            }
+            TaskTimer timer = new TaskTimer();
+            try {
+                jsonWriter.reset(OxConfig.prettyPrintJSON);
+                cacheEncoder.reset();
+                snapshot.write(jsonWriter, cacheEncoder);
+                timer.logTime("SerializeConfig");
+                write();
+                timer.logTime("WriteFile");
+                Logger.logInfo("Wrote out config file successfully");
+            } catch (Exception e) {
+                Logger.logError("Failed to write out config file (you may need to change file permissions): "
+                        + e.getMessage());
+                return;
+            }
+            if (!OxConfig.useStartupCache())
+                return;
+            try {
+                ConfigCache.write(cachePath, jsonWriter.hash(), cacheEncoder);
+                timer.logTime("WriteCache");
+            } catch (Exception e) {
+                Logger.logWarning("Failed to write config cache: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeCacheOnly(ConfigTable.Snapshot snapshot, long jsonHash, long after) {
+        if (snapshot.version() <= after) {
+            // The loaded config isn't committed yet, try again after the debounce
+            synchronized (this) {
+                if (pendingCacheHash == null && !writePending) {
+                    pendingCacheHash = jsonHash;
+                    pendingCacheAfter = after;
+                }
+                schedule();
+            }
+            return;
+        }
+        TaskTimer timer = new TaskTimer();
+        try {
+            cacheEncoder.reset();
+            snapshot.writeCache(cacheEncoder);
+            ConfigCache.write(cachePath, jsonHash, cacheEncoder);
+            timer.logTime("WriteCache");
+        } catch (Exception e) {
+            Logger.logWarning("Failed to write config cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the paths of the backups of the config file, newest first
+     *
+     * @return The backup paths, which may not exist
+     */
+    List<Path> getBackupPaths() {
+        List<Path> backups = new ArrayList<>();
+        for (int i = 1; i <= backupCount; i++) {
+            backups.add(getBackupPath(i));
+        }
+        return backups;
+    }
+
+    private Path getBackupPath(int index) {
+        return path.resolveSibling(path.getFileName() + ".bak" + index);
+    }
+
+    private void write() throws IOException {
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            jsonWriter.writeTo(channel);
+            channel.force(true);
+        }
+        rotateBackups();
+        try {
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // A rename is only durable once its directory is synced
+        syncDirectory();
+    }
+
+    /**
+     * Moves every backup down by one and backs up the current config file, the
+     * first time it is replaced. Later writes only replace the config file, so
+     * tuning doesn't copy and sync the backups on every write, and the backups
+     * keep the configs of previous runs.
+     */
+    private void rotateBackups() throws IOException {
+        if (rotatedBackups || backupCount <= 0 || !Files.exists(path))
+            return;
+        Files.deleteIfExists(getBackupPath(backupCount));
+        for (int i = backupCount - 1; i >= 1; i--) {
+            Path backup = getBackupPath(i);
+            if (Files.exists(backup))
+                Files.move(backup, getBackupPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.copy(path, getBackupPath(1), StandardCopyOption.REPLACE_EXISTING);
+        // The backups must be on disk before the config is replaced
+        try (FileChannel channel = FileChannel.open(getBackupPath(1), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        syncDirectory();
+        rotatedBackups = true;
+    }
+
+    /**
+     * Syncs the directory of the config file, so renames in it survive a power
+     * cut. Skipped where directories can't be opened (Windows), which doesn't
+     * need it.
+     */
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null || !canSyncDirectory)
+            return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            canSyncDirectory = false;
+            Logger.logInfo("Can't sync the config directory on this platform: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package me.nabdev.oxconfig;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A single pass JSON reader for the config file. Instead of building a
+ * JSONObject tree of the whole file, it hands the value of every registered
+ * key straight to a Sink, and everything else to the Sink as the raw JSON
+ * text it was read from.
+ *
+ * Like org.json, trailing commas are allowed.
+ *
+ * Only values of registered keys are decoded, with the same types org.json
+ * would produce, so the codecs see no difference: Integer, Long or BigInteger
+ * for whole numbers, BigDecimal for numbers with a fraction or exponent (Double
+ * for -0), and JSONArray and JSONObject for nested values. Everything else is still
+ * checked as it is skipped, so a config with a typo anywhere in it (even in a
+ * deferred mode) fails to load as a whole.
+ */
+class ConfigParser {
+    /**
+     * Receives the contents of the config as it is read
+     */
+    interface Sink {
+        /**
+         * Gets the index of a mode
+         *
+         * @param mode The name of the mode
+         * @return The index, or -1 if it isn't a mode
+         */
+        int modeIndex(String mode);
+
+        /**
+         * Gets the id of a registered key
+         *
+         * @param key The key
+         * @return The id, or -1 if it isn't registered
+         */
+        int idOf(String key);
+
+        /**
+         * Whether a key is stored as {"value": value, "comment": comment}
+         *
+         * @param id The id of the key
+         * @return Whether it stores a comment
+         */
+        boolean storesComment(int id);
+
+        /**
+         * Called with the root "mode" key
+         *
+         * @param mode The mode
+         */
+        void rootMode(String mode);
+
+        /**
+         * Whether to keep a mode as raw text instead of reading its keys now
+         *
+         * @param mode The index of the mode
+         * @return Whether to defer the mode, see deferred()
+         */
+        boolean defer(int mode);
+
+        /**
+         * Called with a mode that was deferred, to be read later with parseMode()
+         *
+         * @param mode The index of the mode
+         * @param raw  The mode object as JSON text
+         */
+        void deferred(int mode, String raw);
+
+        /**
+         * Called with the value of a registered key in a mode
+         *
+         * @param mode    The index of the mode
+         * @param id      The id of the key
+         * @param value   The value
+         * @param comment The comment, or null if the key doesn't store one
+         */
+        void value(int mode, int id, Object value, String comment);
+
+        /**
+         * Called with a key that isn't registered, or a root key that isn't a mode
+         *
+         * @param mode The mode it was in, or null for root keys
+         * @param key  The key
+         * @param raw  The value as JSON text
+         */
+        void unknown(String mode, String key, String raw);
+    }
+
+    private final String json;
+    private int pos = 0;
+
+    private ConfigParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Reads a whole config
+     *
+     * @param json The contents of the config file
+     * @param sink Where to send the contents
+     * @throws JSONException If the config isn't valid JSON
+     */
+    static void parse(String json, Sink sink) {
+        ConfigParser parser = new ConfigParser(json);
+        parser.expect('{');
+        if (!parser.tryConsume('}')) {
+            do {
+                if (parser.peek() == '}')
+                    break;
+                String key = parser.readKey();
+                int mode = sink.modeIndex(key);
+                if (mode >= 0 && parser.peek() == '{') {
+                    if (sink.defer(mode))
+                        sink.deferred(mode, parser.readRaw());
+                    else
+                        parser.readMode(key, mode, sink);
+                } else if (key.equals("mode") && parser.peek() == '"') {
+                    sink.rootMode(parser.readString());
+                } else {
+                    sink.unknown(null, key, parser.readRaw());
+                }
+            } while (parser.tryConsume(','));
+            parser.expect('}');
+        }
+        parser.expectEnd();
+    }
+
+    /**
+     * Reads the keys of one mode, as stored by parse() in the raw text of a root
+     * key or a deferred mode
+     *
+     * @param json The mode object as JSON text
+     * @param name The name of the mode
+     * @param mode The index of the mode
+     * @param sink Where to send the contents
+     * @throws JSONException If the text isn't a valid JSON object
+     */
+    static void parseMode(String json, String name, int mode, Sink sink) {
+        ConfigParser parser = new ConfigParser(json);
+        parser.readMode(name, mode, sink);
+        parser.expectEnd();
+    }
+
+    /**
+     * Decodes one value, as stored by parse() in the raw text of an unknown key
+     *
+     * @param json The value as JSON text
+     * @return The value
+     * @throws JSONException If the text isn't valid JSON
+     */
+    static Object parseValue(String json) {
+        ConfigParser parser = new ConfigParser(json);
+        Object value = parser.readValue();
+        parser.expectEnd();
+        return value;
+    }
+
+    /**
+     * Writes one value from its JSON text, the same way JsonWriter writes the
+     * decoded value. The keys of every object are sorted, and only scalars are
+     * decoded.
+     *
+     * @param json The value as JSON text
+     * @param out  The writer to write it to
+     * @throws JSONException If the text isn't valid JSON
+     */
+    static void write(String json, JsonWriter out) {
+        ConfigParser parser = new ConfigParser(json);
+        parser.writeValue(out);
+        parser.expectEnd();
+    }
+
+    private void writeValue(JsonWriter out) {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{') {
+            // Find where each value starts, then write them in key order. Like
+            // JSONObject, a duplicate key keeps its last value.
+            Map<String, Integer> members = new TreeMap<>();
+            pos++;
+            if (!tryConsume('}')) {
+                do {
+                    if (peek() == '}')
+                        break;
+                    String key = readKey();
+                    skipWhitespace();
+                    members.put(key, pos);
+                    skipValue();
+                } while (tryConsume(','));
+                expect('}');
+            }
+            int end = pos;
+            out.beginObject();
+            for (Map.Entry<String, Integer> member : members.entrySet()) {
+                out.key(member.getKey());
+                pos = member.getValue();
+                writeValue(out);
+            }
+            out.endObject();
+            pos = end;
+        } else if (c == '[') {
+            pos++;
+            out.beginArray();
+            if (!tryConsume(']')) {
+                do {
+                    if (peek() == ']')
+                        break;
+                    writeValue(out);
+                } while (tryConsume(','));
+                expect(']');
+            }
+            out.endArray();
+        } else {
+            out.value(readValue());
+        }
+    }
+
+    private void readMode(String name, int mode, Sink sink) {
+        expect('{');
+        if (tryConsume('}'))
+            return;
+        do {
+            if (peek() == '}')
+                break;
+            String key = readKey();
+            int id = sink.idOf(key);
+            if (id < 0) {
+                sink.unknown(name, key, readRaw());
+            } else if (sink.storesComment(id) && peek() == '{') {
+                readCommented(mode, id, sink);
+            } else {
+                sink.value(mode, id, readValue(), null);
+            }
+        } while (tryConsume(','));
+        expect('}');
+    }
+
+    /**
+     * Reads a {"value": value, "comment": comment} object
+     */
+    private void readCommented(int mode, int id, Sink sink) {
+        Object value = null;
+        String comment = null;
+        expect('{');
+        if (!tryConsume('}')) {
+            do {
+                if (peek() == '}')
+                    break;
+                String field = readKey();
+                Object fieldValue = readValue();
+                if (field.equals("value"))
+                    value = fieldValue;
+                else if (field.equals("comment") && fieldValue instanceof String)
+                    comment = (String) fieldValue;
+            } while (tryConsume(','));
+            expect('}');
+        }
+        if (value != null)
+            sink.value(mode, id, value, comment);
+    }
+
+    /**
+     * Reads an object key and the colon after it
+     */
+    private String readKey() {
+        skipWhitespace();
+        if (peek() != '"')
+            throw error("Expected a key");
+        String key = readString();
+        expect(':');
+        return key;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return JSONObject.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return readNumber();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private JSONObject readObject() {
+        JSONObject object = new JSONObject();
+        expect('{');
+        if (tryConsume('}'))
+            return object;
+        do {
+            if (peek() == '}')
+                break;
+            String key = readKey();
+            object.put(key, readValue());
+        } while (tryConsume(','));
+        expect('}');
+        return object;
+    }
+
+    private JSONArray readArray() {
+        JSONArray array = new JSONArray();
+        expect('[');
+        if (tryConsume(']'))
+            return array;
+        do {
+            if (peek() == ']')
+                break;
+            array.put(readValue());
+        } while (tryConsume(','));
+        expect(']');
+        return array;
+    }
+
+    private String readString() {
+        pos++;
+        int start = pos;
+        // Fast path for strings without escapes, which is nearly all of them
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return json.substring(start, pos++);
+            }
+            if (c == '\\')
+                break;
+            pos++;
+        }
+        StringBuilder builder = new StringBuilder(json.substring(start, pos));
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '"')
+                return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (pos >= json.length())
+                break;
+            char escaped = json.charAt(pos++);
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(readUnicodeEscape());
+                    break;
+                default:
+                    builder.append(escaped);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Reads a number as the type JSONObject.stringToNumber() gives it
+     */
+    private Number readNumber() {
+        int start = pos;
+        skipNumber();
+        String text = json.substring(start, pos);
+        if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0 || text.equals("-0")) {
+            BigDecimal decimal = new BigDecimal(text);
+            // BigDecimal has no negative zero
+            if (text.charAt(0) == '-' && decimal.signum() == 0)
+                return -0.0;
+            return decimal;
+        }
+        BigInteger integer = new BigInteger(text);
+        if (integer.bitLength() <= 31)
+            return integer.intValue();
+        if (integer.bitLength() <= 63)
+            return integer.longValue();
+        return integer;
+    }
+
+    private void readLiteral(String literal) {
+        if (!json.startsWith(literal, pos))
+            throw error("Unexpected character '" + peek() + "'");
+        pos += literal.length();
+    }
+
+    /**
+     * Skips a value, returning the text it was read from
+     */
+    private String readRaw() {
+        skipWhitespace();
+        int start = pos;
+        skipValue();
+        return json.substring(start, pos);
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            pos++;
+            if (tryConsume(close))
+                return;
+            do {
+                if (peek() == close)
+                    break;
+                if (c == '{') {
+                    skipWhitespace();
+                    if (peek() != '"')
+                        throw error("Expected a key");
+                    skipString();
+                    expect(':');
+                }
+                skipValue();
+            } while (tryConsume(','));
+            expect(close);
+        } else if (c == 't') {
+            readLiteral("true");
+        } else if (c == 'f') {
+            readLiteral("false");
+        } else if (c == 'n') {
+            readLiteral("null");
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            skipNumber();
+        } else {
+            throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    /**
+     * Skips a number, accepting exactly what readNumber() can decode
+     */
+    private void skipNumber() {
+        int start = pos;
+        if (json.charAt(pos) == '-')
+            pos++;
+        int digits = skipDigits();
+        if (pos < json.length() && json.charAt(pos) == '.') {
+            pos++;
+            digits += skipDigits();
+        }
+        if (digits == 0)
+            throw error("Invalid number " + json.substring(start, pos));
+        if (pos < json.length() && (json.charAt(pos) == 'e' || json.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < json.length() && (json.charAt(pos) == '-' || json.charAt(pos) == '+'))
+                pos++;
+            if (skipDigits() == 0)
+                throw error("Invalid number " + json.substring(start, pos));
+        }
+        // Anything else readNumber() would take as part of the number
+        if (pos < json.length() && "+-.eE0123456789".indexOf(json.charAt(pos)) >= 0)
+            throw error("Invalid number " + json.substring(start, pos + 1));
+    }
+
+    private int skipDigits() {
+        int start = pos;
+        while (pos < json.length() && json.charAt(pos) >= '0' && json.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    /**
+     * Skips a string without decoding it, checking its escapes
+     */
+    private void skipString() {
+        pos++;
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '"')
+                return;
+            if (c != '\\')
+                continue;
+            if (pos >= json.length())
+                break;
+            if (json.charAt(pos++) == 'u')
+                readUnicodeEscape();
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Reads the four hex digits of a unicode escape
+     */
+    private char readUnicodeEscape() {
+        if (pos + 4 > json.length())
+            throw error("Unterminated escape");
+        int c = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json.charAt(pos++), 16);
+            if (digit < 0)
+                throw error("Invalid escape");
+            c = c * 16 + digit;
+        }
+        return (char) c;
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return;
+            pos++;
+        }
+    }
+
+    private char peek() {
+        skipWhitespace();
+        if (pos >= json.length())
+            throw error("Unexpected end of config");
+        return json.charAt(pos);
+    }
+
+    private boolean tryConsume(char c) {
+        skipWhitespace();
+        if (pos < json.length() && json.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!tryConsume(c))
+            throw error("Expected '" + c + "'");
+    }
+
+    private void expectEnd() {
+        skipWhitespace();
+        if (pos < json.length())
+            throw error("Unexpected text after the config");
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+}
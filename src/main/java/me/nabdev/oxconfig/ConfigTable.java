@@ -0,0 +1,1443 @@
+package me.nabdev.oxconfig;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The value of every registered key in every mode. Each key gets a dense id
+ * when it is registered and each mode its index in ModeSelector.modes, so
+ * reloading, NT publishing and copying between modes are array walks instead
+ * of lookups in the JSON tree.
+ *
+ * Configs are read by ConfigParser straight into the table, without building a
+ * JSON tree. Keys that aren't registered are kept as the raw JSON text they
+ * were read from, so they are preserved when the config is written back, and
+ * are decoded only if they get registered later.
+ *
+ * Only the active mode is parsed when a config is loaded. The other modes are
+ * kept as raw JSON text and parsed the first time they are used (a mode switch,
+ * a copy, or a full NT update), so startup doesn't spend time or memory on
+ * modes the robot isn't running. Ensured defaults are remembered per key and
+ * filled into a mode when it is parsed. Deferred modes are saved (to the
+ * config file and the ConfigCache) from their raw text, so saving doesn't load
+ * them into the table either. The config file still gets their keys sorted,
+ * like every other object in it.
+ *
+ * Values are stored as the JSON type their codec produces. Keys that store a
+ * comment also have a comment per mode.
+ *
+ * Values are also decoded with their codec when two modes are compared, and
+ * kept decoded per mode until they change, so switching modes only has to
+ * apply the keys whose values differ (see changedIds()). Every mode has a
+ * version that changes with any of its values.
+ *
+ * Once a change is done, commit() publishes it as an immutable Snapshot with
+ * a new version. A snapshot shares the mode rows of the table, and a row is
+ * copied the first time it is written after a commit, so committing costs a
+ * few array copies no matter how many keys there are. Recent snapshots are
+ * kept to find the keys changed since a version (see changedSince()), and to
+ * undo the last committed change (see undo()).
+ *
+ * The config file, the ConfigCache and the Raw NT entry are written from the
+ * latest snapshot (see committed()), never from the table itself, so writing
+ * them out doesn't take the table's lock or change anything in it. Only the
+ * handler thread changes the table and commits, which is also where changes
+ * to the list of modes are picked up.
+ */
+class ConfigTable {
+    private static final String defaultComment = "Auto-Generated";
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static String[] keys = new String[64];
+    private static Configurable<?>[] configurables = new Configurable<?>[64];
+    private static int size = 0;
+    // The ids sorted by key, null until needed
+    private static int[] sortedIds = null;
+
+    // The modes the table was built for, rebuilt if ModeSelector.modes changes
+    private static String[] modes = new String[0];
+    // [mode][id], null if the key has no value in that mode
+    private static Object[][] values = new Object[0][];
+    private static String[][] comments = new String[0][];
+    // The raw JSON text of each mode that hasn't been parsed yet, null once it is
+    private static String[] deferred = new String[0];
+    // Deferred text that failed to parse, kept as it is so it's written back
+    // unchanged instead of being retried on every access
+    private static final Set<String> unparsable = new HashSet<>();
+    // The default value of each key, set by ensure() and filled into deferred
+    // modes when they are parsed
+    private static Object[] ensureDefaults = new Object[64];
+    // [mode][id], the decoded value, null until needed
+    private static Object[][] decoded = new Object[0][];
+    // The version of each mode, see version()
+    private static long[] modeVersions = new long[0];
+    private static long lastVersion = 0;
+    // Whether the rows of each mode are shared with a Snapshot, and have to be
+    // copied before they are written to
+    private static boolean[] shared = new boolean[0];
+    // The root "mode" key, null if the config has none
+    private static String rootMode = null;
+
+    // Root keys that aren't modes, and keys of each mode that aren't registered,
+    // as raw JSON text sorted by key
+    private static Map<String, String> unknownRoot = new TreeMap<>();
+    private static Map<String, Map<String, String>> unknownKeys = new HashMap<>();
+    // Whether the unknown keys are shared with a Snapshot, and have to be copied
+    // before they are written to
+    private static boolean unknownShared = false;
+
+    // How many committed snapshots are kept for changedSince() and undo()
+    private static final int historySize = 32;
+    // The last committed snapshot, null until the first commit
+    private static volatile Snapshot latest = null;
+    // Recently committed snapshots, oldest first
+    private static final ArrayDeque<Snapshot> history = new ArrayDeque<>();
+    // The snapshots undo() goes back to, oldest first. Cleared when a config is
+    // loaded, so undoing never brings back the values of a replaced config.
+    private static final ArrayDeque<Snapshot> undoSteps = new ArrayDeque<>();
+    // Whether the latest snapshot is left out of undoSteps on the next commit,
+    // because a config was loaded over it or because that commit is an undo
+    private static boolean skipUndoStep = false;
+    // How many configs were loaded, so a snapshot of a replaced config is never
+    // restored
+    private static int loads = 0;
+
+    /**
+     * Registers a key, reading its values from the loaded config
+     *
+     * @param key          The key
+     * @param configurable The configurable stored under the key
+     * @return The id of the key
+     */
+    static synchronized int register(String key, Configurable<?> configurable) {
+        updateModes();
+        Integer existing = ids.get(key);
+        if (existing != null) {
+            // Snapshots share the array, and only read the keys they have
+            configurables = configurables.clone();
+            configurables[existing] = configurable;
+            return existing;
+        }
+        if (size == keys.length)
+            grow(size * 2);
+        int id = size++;
+        sortedIds = null;
+        ids.put(key, id);
+        keys[id] = key;
+        configurables[id] = configurable;
+        for (int mode = 0; mode < modes.length; mode++) {
+            // Deferred modes read the key when they are parsed
+            if (deferred[mode] == null)
+                loadSlot(mode, id);
+            changed(mode, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a key
+     *
+     * @param key The key
+     * @return The id, or -1 if the key isn't registered
+     */
+    static synchronized int idOf(String key) {
+        Integer id = ids.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets how many keys are registered, ids go from 0 to size - 1
+     *
+     * @return The number of keys
+     */
+    static synchronized int size() {
+        return size;
+    }
+
+    static synchronized String keyOf(int id) {
+        return keys[id];
+    }
+
+    static synchronized Configurable<?> configurableOf(int id) {
+        return configurables[id];
+    }
+
+    /**
+     * Gets the index of a mode
+     *
+     * @param mode The mode
+     * @return The index, or -1 if it isn't one of the modes
+     */
+    static synchronized int modeIndex(String mode) {
+        updateModes();
+        for (int i = 0; i < modes.length; i++) {
+            if (modes[i].equals(mode))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Forgets every registered key, value and snapshot, as if nothing was ever
+     * registered or loaded. Lets the tests start from an empty table.
+     */
+    static synchronized void reset() {
+        ids.clear();
+        keys = new String[64];
+        configurables = new Configurable<?>[64];
+        ensureDefaults = new Object[64];
+        size = 0;
+        sortedIds = null;
+        modes = new String[0];
+        values = new Object[0][];
+        comments = new String[0][];
+        deferred = new String[0];
+        unparsable.clear();
+        shared = new boolean[0];
+        rootMode = null;
+        unknownRoot = new TreeMap<>();
+        unknownKeys = new HashMap<>();
+        unknownShared = false;
+        resetDecoded();
+        latest = null;
+        history.clear();
+        clearUndoSteps();
+    }
+
+    /**
+     * Replaces every value with the values in a config, parsing every mode. If
+     * the config can't be parsed, nothing is changed.
+     *
+     * @param json The contents of the config file
+     * @throws org.json.JSONException If the config isn't valid JSON
+     */
+    static synchronized void load(String json) {
+        load(json, null);
+    }
+
+    /**
+     * Replaces every value with the values in a config, parsing only the active
+     * mode. The others are parsed when they are first used. If the config can't
+     * be parsed, nothing is changed.
+     *
+     * @param json       The contents of the config file
+     * @param activeMode The mode expected to be active, used if the config has no
+     *                   root mode key before the modes. Null to parse every mode.
+     * @throws org.json.JSONException If the config isn't valid JSON
+     */
+    static synchronized void load(String json, String activeMode) {
+        updateModes();
+        Loader loader = new Loader(new Object[modes.length][keys.length], new String[modes.length][keys.length],
+                new TreeMap<>(), new HashMap<>());
+        loader.deferred = new String[modes.length];
+        loader.activeMode = activeMode;
+        ConfigParser.parse(json, loader);
+        unparsable.clear();
+        values = loader.values;
+        comments = loader.comments;
+        shared = new boolean[modes.length];
+        deferred = loader.deferred;
+        unknownRoot = loader.unknownRoot;
+        unknownKeys = loader.unknownKeys;
+        unknownShared = false;
+        rootMode = loader.rootMode;
+        clearUndoSteps();
+        resetDecoded();
+        reportDeferred();
+    }
+
+    /**
+     * Logs how many modes were deferred, and how much config text they hold
+     */
+    private static void reportDeferred() {
+        int count = 0;
+        long chars = 0;
+        for (String raw : deferred) {
+            if (raw == null)
+                continue;
+            count++;
+            chars += raw.length();
+        }
+        if (count == 0)
+            return;
+        TaskTimer.logCount("DeferredModes", count);
+        TaskTimer.logCount("DeferredChars", chars);
+        Logger.logInfo("Deferred parsing " + count + " of " + modes.length + " modes (" + chars / 1024
+                + " KB of config) until they are used");
+    }
+
+    /**
+     * Parses a deferred mode into its row. If it can't be parsed, the mode stays
+     * deferred with no values, so its text is written back as it was.
+     */
+    private static void materialize(int mode) {
+        String raw = deferred[mode];
+        if (raw == null || unparsable.contains(raw))
+            return;
+        deferred[mode] = null;
+        own(mode);
+        ownUnknown();
+        long start = System.nanoTime();
+        Loader loader = new Loader(values, comments, unknownRoot, unknownKeys);
+        try {
+            ConfigParser.parseMode(raw, modes[mode], mode, loader);
+        } catch (JSONException e) {
+            // The text was checked when the config was loaded, so this shouldn't happen
+            Logger.logError("Failed to parse mode " + modes[mode] + ", leaving it unchanged: " + e.getMessage());
+            unparsable.add(raw);
+            deferred[mode] = raw;
+            Arrays.fill(values[mode], null);
+            Arrays.fill(comments[mode], null);
+            unknownKeys.remove(modes[mode]);
+            return;
+        }
+        Arrays.fill(decoded[mode], null);
+        // Write the ensured defaults back to the config file, like ensure() would.
+        // Otherwise the values are the same as in the raw text, so the version
+        // stays the same.
+        if (fillDefaults(values[mode], comments[mode])) {
+            OxConfig.hasModified = true;
+            modeVersions[mode] = ++lastVersion;
+        }
+        TaskTimer.record("ParseMode", System.nanoTime() - start);
+        Logger.logInfo("Parsed mode " + modes[mode]);
+    }
+
+    /**
+     * Parses the raw text of a deferred mode into a new row, leaving it deferred
+     */
+    private static Row parseDeferred(int mode, String raw) {
+        Object[][] rowValues = new Object[modes.length][];
+        String[][] rowComments = new String[modes.length][];
+        rowValues[mode] = new Object[keys.length];
+        rowComments[mode] = new String[keys.length];
+        Map<String, Map<String, String>> rowUnknown = new HashMap<>();
+        try {
+            ConfigParser.parseMode(raw, modes[mode], mode,
+                    new Loader(rowValues, rowComments, new TreeMap<>(), rowUnknown));
+        } catch (JSONException e) {
+            Logger.logError("Failed to parse mode " + modes[mode] + ", using defaults: " + e.getMessage());
+        }
+        fillDefaults(rowValues[mode], rowComments[mode]);
+        return new Row(rowValues[mode], rowComments[mode],
+                rowUnknown.getOrDefault(modes[mode], Collections.emptyMap()));
+    }
+
+    /**
+     * Sets every key without a value in a row to its ensured default
+     *
+     * @return Whether any key was missing
+     */
+    private static boolean fillDefaults(Object[] rowValues, String[] rowComments) {
+        boolean added = false;
+        for (int id = 0; id < size; id++) {
+            if (rowValues[id] != null || ensureDefaults[id] == null)
+                continue;
+            rowValues[id] = ensureDefaults[id];
+            if (configurables[id].shouldStoreComment())
+                rowComments[id] = defaultComment;
+            added = true;
+        }
+        return added;
+    }
+
+    /**
+     * Gets the ids sorted by key, cached until another key is registered
+     */
+    private static int[] getSortedIds() {
+        if (sortedIds != null)
+            return sortedIds;
+        Integer[] order = new Integer[size];
+        for (int id = 0; id < size; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+        sortedIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = order[i];
+        }
+        return sortedIds;
+    }
+
+    private static void writeUnknown(ConfigCache.Encoder out, Map<String, String> unknown) {
+        out.putInt(unknown.size());
+        for (Map.Entry<String, String> entry : unknown.entrySet()) {
+            out.putString(entry.getKey()).putString(entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces every value with the contents of a ConfigCache. If the cache can't
+     * be read, nothing is changed.
+     *
+     * @param in The contents written by writeCache()
+     * @return Whether the cache was loaded, false if it was written for different
+     *         modes
+     * @throws java.nio.BufferUnderflowException If the cache ends early
+     * @throws IllegalStateException             If the cache is corrupt
+     */
+    static synchronized boolean loadCache(ByteBuffer in) {
+        updateModes();
+        int modeCount = in.getInt();
+        if (modeCount != modes.length)
+            return false;
+        for (String mode : modes) {
+            if (!mode.equals(ConfigCache.getString(in)))
+                return false;
+        }
+        Loader loader = new Loader(new Object[modes.length][keys.length], new String[modes.length][keys.length],
+                new TreeMap<>(), new HashMap<>());
+        if (in.get() != 0)
+            loader.rootMode(ConfigCache.getString(in));
+        readUnknown(in, null, loader);
+        String[] cacheDeferred = new String[modes.length];
+        JsonWriter rawWriter = null;
+        for (int mode = 0; mode < modes.length; mode++) {
+            if (in.get() != 0) {
+                cacheDeferred[mode] = ConfigCache.getString(in);
+                continue;
+            }
+            readUnknown(in, modes[mode], loader);
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = ConfigCache.getString(in);
+                Object value = ConfigCache.getValue(in);
+                String comment = in.get() != 0 ? ConfigCache.getString(in) : null;
+                int id = loader.idOf(key);
+                if (id >= 0) {
+                    loader.value(mode, id, value, comment);
+                    continue;
+                }
+                // Registered when the cache was written but not anymore
+                if (rawWriter == null)
+                    rawWriter = new JsonWriter();
+                rawWriter.reset(false);
+                if (comment != null) {
+                    rawWriter.beginObject();
+                    rawWriter.key("comment").value(comment);
+                    rawWriter.key("value").value(value);
+                    rawWriter.endObject();
+                } else {
+                    rawWriter.value(value);
+                }
+                loader.unknown(modes[mode], key, rawWriter.toString());
+            }
+        }
+        if (in.hasRemaining())
+            throw new IllegalStateException("Unexpected data after the cache");
+        values = loader.values;
+        comments = loader.comments;
+        shared = new boolean[modes.length];
+        deferred = cacheDeferred;
+        unparsable.clear();
+        resetDecoded();
+        unknownRoot = loader.unknownRoot;
+        unknownKeys = loader.unknownKeys;
+        unknownShared = false;
+        rootMode = loader.rootMode;
+        clearUndoSteps();
+        return true;
+    }
+
+    private static void readUnknown(ByteBuffer in, String mode, Loader loader) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String key = ConfigCache.getString(in);
+            loader.unknown(mode, key, ConfigCache.getString(in));
+        }
+    }
+
+    /**
+     * Checks if every registered key has a value in every parsed mode, in which
+     * case ensuring them would change nothing. Deferred modes get their defaults
+     * when they are parsed.
+     *
+     * @return Whether no key is missing a value
+     */
+    static synchronized boolean isComplete() {
+        updateModes();
+        for (int mode = 0; mode < modes.length; mode++) {
+            if (deferred[mode] != null)
+                continue;
+            for (int id = 0; id < size; id++) {
+                if (values[mode][id] == null)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value of a key in a mode
+     *
+     * @param mode The index of the mode
+     * @param id   The id of the key
+     * @return The value as stored in the config
+     * @throws IllegalStateException If the key has no value in the mode
+     */
+    static synchronized Object get(int mode, int id) {
+        updateModes();
+        materialize(mode);
+        Object value = values[mode][id];
+        if (value == null)
+            throw new IllegalStateException("Key " + keys[id] + " has no value in mode " + modes[mode]);
+        return value;
+    }
+
+    /**
+     * Checks if a key has a value in a mode
+     *
+     * @param mode The index of the mode
+     * @param id   The id of the key
+     * @return Whether the key has a value
+     */
+    static synchronized boolean has(int mode, int id) {
+        updateModes();
+        materialize(mode);
+        return values[mode][id] != null;
+    }
+
+    /**
+     * Gets the comment of a key in a mode
+     *
+     * @param mode The index of the mode
+     * @param id   The id of the key
+     * @return The comment, or "Auto-Generated" if it has none
+     */
+    static synchronized String getComment(int mode, int id) {
+        updateModes();
+        materialize(mode);
+        String comment = comments[mode][id];
+        return comment == null ? defaultComment : comment;
+    }
+
+    /**
+     * Sets the value of a key in a mode
+     *
+     * @param mode    The index of the mode
+     * @param id      The id of the key
+     * @param value   The value as stored in the config
+     * @param comment The comment, or null to keep the current one
+     */
+    static synchronized void set(int mode, int id, Object value, String comment) {
+        updateModes();
+        materialize(mode);
+        setLocked(mode, id, value, comment);
+    }
+
+    private static void setLocked(int mode, int id, Object value, String comment) {
+        replaceUnparsable(mode);
+        own(mode);
+        values[mode][id] = value;
+        changed(mode, id);
+        if (configurables[id].shouldStoreComment()) {
+            if (comment != null)
+                comments[mode][id] = comment;
+            else if (comments[mode][id] == null)
+                comments[mode][id] = defaultComment;
+        }
+    }
+
+    /**
+     * Checks if setting a key would change neither its value nor its comment
+     *
+     * @param mode    The index of the mode
+     * @param id      The id of the key
+     * @param value   The value as stored in the config
+     * @param comment The comment, or null to keep the current one
+     * @return Whether the key already has the value and comment
+     */
+    static synchronized boolean isUnchanged(int mode, int id, Object value, String comment) {
+        updateModes();
+        materialize(mode);
+        return isUnchangedLocked(mode, id, value, comment);
+    }
+
+    private static boolean isUnchangedLocked(int mode, int id, Object value, String comment) {
+        if (!sameJson(values[mode][id], value))
+            return false;
+        return comment == null || !configurables[id].shouldStoreComment() || comment.equals(comments[mode][id]);
+    }
+
+    /**
+     * Gives up the text of a mode that couldn't be parsed once a value is set in
+     * it, replacing it with the ensured defaults. Otherwise the text would be
+     * written back and the new value lost.
+     */
+    private static void replaceUnparsable(int mode) {
+        if (deferred[mode] == null)
+            return;
+        Logger.logWarning("Replacing mode " + modes[mode] + ", which couldn't be parsed, with the default values");
+        deferred[mode] = null;
+        own(mode);
+        fillDefaults(values[mode], comments[mode]);
+        OxConfig.hasModified = true;
+        modeVersions[mode] = ++lastVersion;
+    }
+
+    /**
+     * Sets the value of a key in every mode it has no value in. Deferred modes
+     * get the value when they are parsed.
+     *
+     * @param id         The id of the key
+     * @param defaultVal The value as stored in the config
+     * @return Whether any parsed mode was missing the key
+     */
+    static synchronized boolean ensure(int id, Object defaultVal) {
+        updateModes();
+        return ensureLocked(id, defaultVal);
+    }
+
+    private static boolean ensureLocked(int id, Object defaultVal) {
+        ensureDefaults[id] = defaultVal;
+        boolean added = false;
+        for (int mode = 0; mode < modes.length; mode++) {
+            if (deferred[mode] != null || values[mode][id] != null)
+                continue;
+            own(mode);
+            values[mode][id] = defaultVal;
+            if (configurables[id].shouldStoreComment())
+                comments[mode][id] = defaultComment;
+            changed(mode, id);
+            added = true;
+        }
+        return added;
+    }
+
+    /**
+     * Reads the values of keys in a mode in one pass, taking the lock and parsing
+     * the mode once for the whole batch instead of once per key
+     *
+     * @param mode     The index of the mode
+     * @param readIds  The ids of the keys to read, or null to read every key
+     * @param defaults Gives the value each key is ensured with before it is read,
+     *                 or null to not ensure them
+     * @return The keys, their configurables and their values
+     */
+    static synchronized Batch getAll(int mode, int[] readIds, Function<Configurable<?>, Object> defaults) {
+        updateModes();
+        int count = readIds == null ? size : readIds.length;
+        Batch batch = new Batch(count);
+        for (int i = 0; i < count; i++) {
+            int id = readIds == null ? i : readIds[i];
+            batch.keys[i] = keys[id];
+            batch.configurables[i] = configurables[id];
+            if (defaults != null && ensureLocked(id, defaults.apply(configurables[id])))
+                batch.ensured = true;
+        }
+        materialize(mode);
+        for (int i = 0; i < count; i++) {
+            batch.values[i] = values[mode][readIds == null ? i : readIds[i]];
+        }
+        return batch;
+    }
+
+    /**
+     * Sets the values of keys in one pass, taking the lock once for the whole
+     * batch. Edits with no value only change the comment, and are skipped if the
+     * key has no value. Edits that change neither the value nor the comment are
+     * skipped.
+     *
+     * @param setModes    The index of the mode of each edit
+     * @param setIds      The id of the key of each edit
+     * @param setValues   The value of each edit as stored in the config, or null to
+     *                    keep the current one
+     * @param setComments The comment of each edit, or null to keep the current one
+     * @return Whether each edit was written
+     */
+    static synchronized boolean[] setAll(int[] setModes, int[] setIds, Object[] setValues, String[] setComments) {
+        updateModes();
+        boolean[] written = new boolean[setIds.length];
+        for (int i = 0; i < setIds.length; i++) {
+            int mode = setModes[i];
+            int id = setIds[i];
+            materialize(mode);
+            Object value = setValues[i] == null ? values[mode][id] : setValues[i];
+            if (value == null || isUnchangedLocked(mode, id, value, setComments[i]))
+                continue;
+            setLocked(mode, id, value, setComments[i]);
+            written[i] = true;
+        }
+        return written;
+    }
+
+    /**
+     * Copies the values and comments of keys from one mode to another in one pass.
+     * Keys the source mode has no value for are skipped.
+     *
+     * @param sourceMode The index of the mode to copy from
+     * @param destMode   The index of the mode to copy to
+     * @param copyIds    The ids of the keys to copy, or null to copy every key
+     * @return The ids of the keys whose value or comment changed, in the order
+     *         they were given
+     */
+    static synchronized int[] copy(int sourceMode, int destMode, int[] copyIds) {
+        updateModes();
+        materialize(sourceMode);
+        materialize(destMode);
+        int count = copyIds == null ? size : copyIds.length;
+        int[] changedIds = new int[count];
+        int changedCount = 0;
+        for (int i = 0; i < count; i++) {
+            int id = copyIds == null ? i : copyIds[i];
+            Object value = values[sourceMode][id];
+            String comment = comments[sourceMode][id];
+            if (value == null || (value.equals(values[destMode][id])
+                    && Objects.equals(comment, comments[destMode][id])))
+                continue;
+            replaceUnparsable(destMode);
+            own(destMode);
+            values[destMode][id] = value;
+            comments[destMode][id] = comment;
+            // Decoded values are only compared, so both modes can share one
+            decoded[destMode][id] = decoded[sourceMode][id];
+            changedIds[changedCount++] = id;
+        }
+        if (changedCount > 0)
+            modeVersions[destMode] = ++lastVersion;
+        return Arrays.copyOf(changedIds, changedCount);
+    }
+
+    /**
+     * Gets the version of a mode, which changes whenever any of its values
+     * change. Versions are never reused, even across modes or loads.
+     *
+     * @param mode The index of the mode
+     * @return The version
+     */
+    static synchronized long version(int mode) {
+        updateModes();
+        return modeVersions[mode];
+    }
+
+    /**
+     * Finds the keys whose decoded values differ between two modes, which are
+     * the only keys whose setters have to run when switching from one to the
+     * other. Keys missing from either mode, or that can't be decoded, count as
+     * different.
+     *
+     * @param fromMode The index of the mode being switched from
+     * @param toMode   The index of the mode being switched to
+     * @return The ids of the keys, in id order
+     */
+    static synchronized int[] changedIds(int fromMode, int toMode) {
+        updateModes();
+        materialize(fromMode);
+        materialize(toMode);
+        int[] changedIds = new int[size];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            if (!sameValue(fromMode, toMode, id))
+                changedIds[count++] = id;
+        }
+        return Arrays.copyOf(changedIds, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean sameValue(int modeA, int modeB, int id) {
+        Object a = values[modeA][id];
+        Object b = values[modeB][id];
+        if (a == null || b == null)
+            return false;
+        // The same JSON always decodes to the same value
+        if (a.equals(b))
+            return true;
+        Object decodedA = decode(modeA, id);
+        Object decodedB = decode(modeB, id);
+        if (decodedA == null || decodedB == null)
+            return false;
+        return ((ValueCodec<Object>) configurables[id].getCodec()).isEqual(decodedA, decodedB);
+    }
+
+    /**
+     * Gets the decoded value of a key, decoding it if it hasn't been yet
+     *
+     * @return The value, or null if it can't be decoded
+     */
+    private static Object decode(int mode, int id) {
+        Object value = decoded[mode][id];
+        if (value != null)
+            return value;
+        try {
+            value = configurables[id].getCodec().fromJson(values[mode][id]);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        decoded[mode][id] = value;
+        return value;
+    }
+
+    /**
+     * Records that the value of a key in a mode changed
+     */
+    private static void changed(int mode, int id) {
+        decoded[mode][id] = null;
+        modeVersions[mode] = ++lastVersion;
+    }
+
+    /**
+     * Clears every decoded value and changes the version of every mode, after
+     * the rows are replaced
+     */
+    private static void resetDecoded() {
+        decoded = new Object[modes.length][keys.length];
+        modeVersions = new long[modes.length];
+        for (int mode = 0; mode < modes.length; mode++) {
+            modeVersions[mode] = ++lastVersion;
+        }
+    }
+
+    /**
+     * Publishes the current values and comments as a new Snapshot, if anything
+     * changed since the last commit. Called by the handler thread once a change
+     * (an edit, a copy, a reload) is done, so no snapshot holds half of one.
+     *
+     * @return The version of the latest snapshot
+     */
+    static synchronized long commit() {
+        updateModes();
+        Snapshot current = latest;
+        if (current != null && current.version == lastVersion && current.modes == modes)
+            return current.version;
+        // The rows and unknown keys are shared until they are written to again,
+        // see own() and ownUnknown()
+        Arrays.fill(shared, true);
+        unknownShared = true;
+        Snapshot snapshot = new Snapshot();
+        history.addLast(snapshot);
+        if (history.size() > historySize)
+            history.removeFirst();
+        if (current != null && !skipUndoStep) {
+            undoSteps.addLast(current);
+            if (undoSteps.size() > historySize)
+                undoSteps.removeFirst();
+        }
+        skipUndoStep = false;
+        latest = snapshot;
+        return snapshot.version;
+    }
+
+    /**
+     * Forgets every undo step, after the values are replaced by a loaded config
+     */
+    private static void clearUndoSteps() {
+        undoSteps.clear();
+        skipUndoStep = true;
+        loads++;
+    }
+
+    /**
+     * Commits the current values and comments, to be restored later with
+     * restore()
+     *
+     * @return The latest snapshot
+     */
+    static synchronized Snapshot snapshot() {
+        commit();
+        return latest;
+    }
+
+    /**
+     * Gets the latest committed snapshot, which is what the config file, the
+     * ConfigCache and the Raw NT entry are written from. Doesn't lock, so
+     * writing it out never waits on the handler thread.
+     *
+     * @return The snapshot, or null if nothing was committed yet
+     */
+    static Snapshot committed() {
+        return latest;
+    }
+
+    /**
+     * Gets the version of the latest committed snapshot. Doesn't lock, so any
+     * thread can check if the config changed.
+     *
+     * @return The version, or -1 if nothing was committed yet
+     */
+    static long latestVersion() {
+        Snapshot snapshot = latest;
+        return snapshot == null ? -1 : snapshot.version;
+    }
+
+    /**
+     * Finds the keys whose value or comment changed in any mode since a
+     * committed version, committing the current values first
+     *
+     * @param version The version, as returned by commit()
+     * @return The ids of the keys, in id order, or null if the version is too old
+     *         to still be in the history
+     */
+    static synchronized int[] changedSince(long version) {
+        commit();
+        Snapshot current = latest;
+        Snapshot base = null;
+        for (Snapshot snapshot : history) {
+            if (snapshot.version == version)
+                base = snapshot;
+        }
+        if (base == null || base.modes != modes)
+            return null;
+        boolean[] changed = new boolean[size];
+        for (int mode = 0; mode < modes.length; mode++) {
+            String baseRaw = base.deferred[mode];
+            String currentRaw = current.deferred[mode];
+            if (baseRaw != null || currentRaw != null) {
+                if (Objects.equals(baseRaw, currentRaw))
+                    continue;
+            } else if (base.values[mode] == current.values[mode] && base.comments[mode] == current.comments[mode]) {
+                // Rows are copied before they are written to, so a shared row is unchanged
+                continue;
+            }
+            Row before = baseRaw != null ? parseDeferred(mode, baseRaw)
+                    : new Row(base.values[mode], base.comments[mode], null);
+            Row after = currentRaw != null ? parseDeferred(mode, currentRaw)
+                    : new Row(current.values[mode], current.comments[mode], null);
+            for (int id = 0; id < size; id++) {
+                if (id >= base.size || !sameJson(before.values[id], after.values[id])
+                        || !Objects.equals(before.comments[id], after.comments[id]))
+                    changed[id] = true;
+            }
+        }
+        int[] changedIds = new int[size];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            if (changed[id])
+                changedIds[count++] = id;
+        }
+        return Arrays.copyOf(changedIds, count);
+    }
+
+    /**
+     * Compares two stored values, including arrays and objects by their contents
+     */
+    private static boolean sameJson(Object a, Object b) {
+        if (a == b)
+            return true;
+        if (a == null || b == null)
+            return false;
+        if (a instanceof JSONArray)
+            return ((JSONArray) a).similar(b);
+        if (a instanceof JSONObject)
+            return ((JSONObject) a).similar(b);
+        // A decimal read from the config is a BigDecimal, the same value set from
+        // code is a Double
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass())
+            return sameNumber((Number) a, (Number) b);
+        return a.equals(b);
+    }
+
+    /**
+     * Compares two numbers of different types by their value
+     */
+    private static boolean sameNumber(Number a, Number b) {
+        try {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+        } catch (NumberFormatException e) {
+            // NaN or infinite, which only a Double or Float can be
+            return Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+        }
+    }
+
+    /**
+     * Undoes the last committed change, by restoring the snapshot it was committed
+     * on top of and committing that as a new version. Keys registered since keep
+     * their current values. Calling it again undoes the change before that, up to
+     * the size of the history. Changes made before the config was last loaded
+     * can't be undone.
+     *
+     * @return Whether there was a change to undo
+     */
+    static synchronized boolean undo() {
+        commit();
+        Snapshot target = undoSteps.peekLast();
+        if (target == null || target.modes != modes)
+            return false;
+        undoSteps.removeLast();
+        restore(target);
+        // Undoing again goes further back, instead of redoing this undo
+        skipUndoStep = true;
+        commit();
+        return true;
+    }
+
+    /**
+     * Restores the values and comments of a snapshot. Keys registered after the
+     * snapshot was taken keep their current values.
+     *
+     * @param snapshot The snapshot
+     * @throws IllegalStateException If the modes changed or a config was loaded
+     *                               since the snapshot
+     */
+    static synchronized void restore(Snapshot snapshot) {
+        updateModes();
+        if (snapshot.modes != modes)
+            throw new IllegalStateException("The modes changed since the snapshot was taken");
+        if (snapshot.load != loads)
+            throw new IllegalStateException("A config was loaded since the snapshot was taken");
+        for (int mode = 0; mode < modes.length; mode++) {
+            deferred[mode] = snapshot.deferred[mode];
+            if (snapshot.size == size && snapshot.values[mode].length == keys.length) {
+                values[mode] = snapshot.values[mode];
+                comments[mode] = snapshot.comments[mode];
+                shared[mode] = true;
+                continue;
+            }
+            // Keys registered since keep their current values
+            Object[] rowValues = Arrays.copyOf(snapshot.values[mode], keys.length);
+            String[] rowComments = Arrays.copyOf(snapshot.comments[mode], keys.length);
+            System.arraycopy(values[mode], snapshot.size, rowValues, snapshot.size, size - snapshot.size);
+            System.arraycopy(comments[mode], snapshot.size, rowComments, snapshot.size, size - snapshot.size);
+            if (deferred[mode] == null)
+                fillDefaults(rowValues, rowComments);
+            values[mode] = rowValues;
+            comments[mode] = rowComments;
+            shared[mode] = false;
+        }
+        rootMode = snapshot.rootMode;
+        resetDecoded();
+    }
+
+    /**
+     * Copies the rows of a mode if they are shared with a snapshot, before they
+     * are written to
+     */
+    private static void own(int mode) {
+        if (!shared[mode])
+            return;
+        values[mode] = values[mode].clone();
+        comments[mode] = comments[mode].clone();
+        shared[mode] = false;
+    }
+
+    /**
+     * Copies the unknown keys if they are shared with a snapshot, before they are
+     * written to
+     */
+    private static void ownUnknown() {
+        if (!unknownShared)
+            return;
+        unknownRoot = new TreeMap<>(unknownRoot);
+        Map<String, Map<String, String>> copy = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : unknownKeys.entrySet()) {
+            copy.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+        }
+        unknownKeys = copy;
+        unknownShared = false;
+    }
+
+    static synchronized String getRootMode() {
+        return rootMode;
+    }
+
+    static synchronized void setRootMode(String mode) {
+        if (Objects.equals(rootMode, mode))
+            return;
+        rootMode = mode;
+        lastVersion++;
+    }
+
+    /**
+     * Grows the key arrays to hold at least the given number of keys
+     */
+    private static void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        configurables = Arrays.copyOf(configurables, capacity);
+        ensureDefaults = Arrays.copyOf(ensureDefaults, capacity);
+        for (int mode = 0; mode < modes.length; mode++) {
+            values[mode] = Arrays.copyOf(values[mode], capacity);
+            comments[mode] = Arrays.copyOf(comments[mode], capacity);
+            decoded[mode] = Arrays.copyOf(decoded[mode], capacity);
+        }
+        // The rows were just copied
+        Arrays.fill(shared, false);
+    }
+
+    /**
+     * Rebuilds the mode rows if the list of modes changed, keeping the values of
+     * modes that still exist. New modes are read from the loaded config, and
+     * removed modes are kept as unknown root keys. Snapshots never call this,
+     * so a new list of modes reaches the config file with the next commit.
+     */
+    private static void updateModes() {
+        String[] current = ModeSelector.modes;
+        if (current == modes)
+            return;
+        ownUnknown();
+        // Removed modes are written out from the rows they have now
+        Snapshot removed = null;
+        Object[][] newValues = new Object[current.length][];
+        String[][] newComments = new String[current.length][];
+        String[] newDeferred = new String[current.length];
+        Object[][] newDecoded = new Object[current.length][];
+        long[] newVersions = new long[current.length];
+        boolean[] newShared = new boolean[current.length];
+        for (int i = 0; i < current.length; i++) {
+            int old = Arrays.asList(modes).indexOf(current[i]);
+            newValues[i] = old >= 0 ? values[old] : new Object[keys.length];
+            newComments[i] = old >= 0 ? comments[old] : new String[keys.length];
+            newDecoded[i] = old >= 0 ? decoded[old] : new Object[keys.length];
+            newVersions[i] = old >= 0 ? modeVersions[old] : ++lastVersion;
+            newShared[i] = old >= 0 && shared[old];
+            if (old >= 0) {
+                newDeferred[i] = deferred[old];
+            } else {
+                // New modes are parsed from the loaded config when they are used
+                String raw = unknownRoot.get(current[i]);
+                if (raw != null && raw.startsWith("{")) {
+                    unknownRoot.remove(current[i]);
+                    newDeferred[i] = raw;
+                }
+            }
+        }
+        for (int old = 0; old < modes.length; old++) {
+            if (!Arrays.asList(current).contains(modes[old])) {
+                if (deferred[old] != null) {
+                    unknownRoot.put(modes[old], deferred[old]);
+                } else {
+                    if (removed == null)
+                        removed = new Snapshot();
+                    JsonWriter out = new JsonWriter();
+                    out.reset(false);
+                    removed.writeMode(out, old);
+                    unknownRoot.put(modes[old], out.toString());
+                }
+                unknownKeys.remove(modes[old]);
+            }
+        }
+        modes = current;
+        values = newValues;
+        comments = newComments;
+        deferred = newDeferred;
+        decoded = newDecoded;
+        modeVersions = newVersions;
+        shared = newShared;
+    }
+
+    /**
+     * Reads the value of a key in a mode from the unknown keys of the loaded
+     * config, for keys registered after it was loaded
+     */
+    private static void loadSlot(int mode, int id) {
+        own(mode);
+        values[mode][id] = null;
+        comments[mode][id] = null;
+        Map<String, String> unknown = unknownKeys.get(modes[mode]);
+        if (unknown == null || !unknown.containsKey(keys[id]))
+            return;
+        ownUnknown();
+        String raw = unknownKeys.get(modes[mode]).remove(keys[id]);
+        Object stored = ConfigParser.parseValue(raw);
+        if (configurables[id].shouldStoreComment() && stored instanceof JSONObject) {
+            JSONObject data = (JSONObject) stored;
+            values[mode][id] = data.opt("value");
+            Object comment = data.opt("comment");
+            comments[mode][id] = comment instanceof String ? (String) comment : defaultComment;
+        } else {
+            values[mode][id] = stored;
+            if (configurables[id].shouldStoreComment())
+                comments[mode][id] = defaultComment;
+        }
+    }
+
+    /**
+     * Writes what ConfigParser reads into a set of mode rows and unknown keys
+     */
+    private static class Loader implements ConfigParser.Sink {
+        private final Object[][] values;
+        private final String[][] comments;
+        private final Map<String, String> unknownRoot;
+        private final Map<String, Map<String, String>> unknownKeys;
+        private String rootMode = null;
+        // Where modes are deferred to, null to parse every mode
+        private String[] deferred = null;
+        private String activeMode = null;
+
+        private Loader(Object[][] values, String[][] comments, Map<String, String> unknownRoot,
+                Map<String, Map<String, String>> unknownKeys) {
+            this.values = values;
+            this.comments = comments;
+            this.unknownRoot = unknownRoot;
+            this.unknownKeys = unknownKeys;
+        }
+
+        @Override
+        public int modeIndex(String mode) {
+            for (int i = 0; i < modes.length; i++) {
+                if (modes[i].equals(mode))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int idOf(String key) {
+            Integer id = ids.get(key);
+            return id == null ? -1 : id;
+        }
+
+        @Override
+        public boolean storesComment(int id) {
+            return configurables[id].shouldStoreComment();
+        }
+
+        @Override
+        public void rootMode(String mode) {
+            rootMode = mode;
+        }
+
+        @Override
+        public boolean defer(int mode) {
+            if (deferred == null || activeMode == null)
+                return false;
+            // The root mode key decides the active mode, unless it comes after the modes
+            // or the robot is simulated
+            String active = rootMode != null && !OxConfig.isSimulation() ? rootMode : activeMode;
+            return !modes[mode].equals(active);
+        }
+
+        @Override
+        public void deferred(int mode, String raw) {
+            deferred[mode] = raw;
+        }
+
+        @Override
+        public void value(int mode, int id, Object value, String comment) {
+            values[mode][id] = value;
+            if (configurables[id].shouldStoreComment())
+                comments[mode][id] = comment == null ? defaultComment : comment;
+        }
+
+        @Override
+        public void unknown(String mode, String key, String raw) {
+            if (mode == null)
+                unknownRoot.put(key, raw);
+            else
+                unknownKeys.computeIfAbsent(mode, k -> new TreeMap<>()).put(key, raw);
+        }
+    }
+
+    /**
+     * The keys, configurables and values of a batch of keys in one mode, as read by
+     * getAll()
+     */
+    static class Batch {
+        final String[] keys;
+        final Configurable<?>[] configurables;
+        // Null where the key has no value in the mode
+        final Object[] values;
+        // Whether any key was missing from a parsed mode and ensured
+        boolean ensured = false;
+
+        private Batch(int count) {
+            keys = new String[count];
+            configurables = new Configurable<?>[count];
+            values = new Object[count];
+        }
+    }
+
+    /**
+     * The values, comments and unknown keys of one mode
+     */
+    private static class Row {
+        private final Object[] values;
+        private final String[] comments;
+        private final Map<String, String> unknown;
+
+        private Row(Object[] values, String[] comments, Map<String, String> unknown) {
+            this.values = values;
+            this.comments = comments;
+            this.unknown = unknown;
+        }
+    }
+
+    /**
+     * The values, comments and unknown keys of every mode as of one commit.
+     * Never changed once committed, so it can be written out by any thread
+     * without holding the table's lock.
+     */
+    static class Snapshot {
+        private final long version;
+        private final String[] modes;
+        // [mode][id], shared with the table until it writes to a row
+        private final Object[][] values;
+        private final String[][] comments;
+        private final String[] deferred;
+        private final String rootMode;
+        // The number of keys registered at the time
+        private final int size;
+        // Shared with the table, which only adds keys past size and copies the
+        // configurables before replacing one
+        private final String[] keys;
+        private final Configurable<?>[] configurables;
+        private final int[] sortedIds;
+        // Shared with the table until it writes to them, see ownUnknown()
+        private final Map<String, String> unknownRoot;
+        private final Map<String, Map<String, String>> unknownKeys;
+        // The config load it was committed after, see restore()
+        private final int load;
+
+        private Snapshot() {
+            this.version = lastVersion;
+            this.modes = ConfigTable.modes;
+            this.values = ConfigTable.values.clone();
+            this.comments = ConfigTable.comments.clone();
+            this.deferred = ConfigTable.deferred.clone();
+            this.rootMode = ConfigTable.rootMode;
+            this.size = ConfigTable.size;
+            this.keys = ConfigTable.keys;
+            this.configurables = ConfigTable.configurables;
+            this.sortedIds = getSortedIds();
+            this.unknownRoot = ConfigTable.unknownRoot;
+            this.unknownKeys = ConfigTable.unknownKeys;
+            this.load = ConfigTable.loads;
+        }
+
+        /**
+         * Gets the version of the table this snapshot was committed at
+         *
+         * @return The version
+         */
+        long version() {
+            return version;
+        }
+
+        /**
+         * Writes the whole config as JSON, with the keys of every object in
+         * sorted order so the output only depends on the contents. The root
+         * "mode" key always comes first, so the active mode is known before any
+         * mode is read.
+         *
+         * @param out The writer to write to
+         */
+        void write(JsonWriter out) {
+            List<String> rootKeys = new ArrayList<>(unknownRoot.keySet());
+            rootKeys.addAll(Arrays.asList(modes));
+            Collections.sort(rootKeys);
+            if (rootKeys.remove("mode") || rootMode != null)
+                rootKeys.add(0, "mode");
+            out.beginObject();
+            for (String key : rootKeys) {
+                int mode = Arrays.asList(modes).indexOf(key);
+                out.key(key);
+                if (mode >= 0)
+                    writeMode(out, mode);
+                else if (key.equals("mode") && rootMode != null)
+                    out.value(rootMode);
+                else
+                    out.rawValue(unknownRoot.get(key));
+            }
+            out.endObject();
+        }
+
+        /**
+         * Writes the registered and unknown keys of a mode, merged in sorted
+         * order. A deferred mode is written straight from its raw text, without
+         * loading it into the table.
+         */
+        private void writeMode(JsonWriter out, int mode) {
+            if (deferred[mode] != null) {
+                out.rawValue(deferred[mode]);
+                return;
+            }
+            Map<String, String> unknown = unknownKeys.getOrDefault(modes[mode], Collections.emptyMap());
+            Iterator<Map.Entry<String, String>> unknownIterator = unknown.entrySet().iterator();
+            Map.Entry<String, String> nextUnknown = unknownIterator.hasNext() ? unknownIterator.next() : null;
+            Object[] modeValues = values[mode];
+            String[] modeComments = comments[mode];
+            out.beginObject();
+            for (int id : sortedIds) {
+                if (modeValues[id] == null)
+                    continue;
+                while (nextUnknown != null && nextUnknown.getKey().compareTo(keys[id]) < 0) {
+                    out.key(nextUnknown.getKey()).rawValue(nextUnknown.getValue());
+                    nextUnknown = unknownIterator.hasNext() ? unknownIterator.next() : null;
+                }
+                out.key(keys[id]);
+                if (configurables[id].shouldStoreComment()) {
+                    out.beginObject();
+                    out.key("comment").value(modeComments[id]);
+                    out.key("value").value(modeValues[id]);
+                    out.endObject();
+                } else {
+                    out.value(modeValues[id]);
+                }
+            }
+            while (nextUnknown != null) {
+                out.key(nextUnknown.getKey()).rawValue(nextUnknown.getValue());
+                nextUnknown = unknownIterator.hasNext() ? unknownIterator.next() : null;
+            }
+            out.endObject();
+        }
+
+        /**
+         * Writes the whole config as JSON, and the same state to a ConfigCache,
+         * so the cache always matches the JSON it is stored with
+         *
+         * @param out   The writer to write the JSON to
+         * @param cache The encoder to write the cache contents to
+         */
+        void write(JsonWriter out, ConfigCache.Encoder cache) {
+            write(out);
+            writeCache(cache);
+        }
+
+        /**
+         * Writes every value, comment and unknown key to a ConfigCache. Deferred
+         * modes are written as their raw text, and stay deferred when the cache
+         * is loaded.
+         *
+         * @param out The encoder to write to
+         */
+        void writeCache(ConfigCache.Encoder out) {
+            out.putInt(modes.length);
+            for (String mode : modes) {
+                out.putString(mode);
+            }
+            out.putByte(rootMode == null ? 0 : 1);
+            if (rootMode != null)
+                out.putString(rootMode);
+            writeUnknown(out, unknownRoot);
+            for (int mode = 0; mode < modes.length; mode++) {
+                out.putByte(deferred[mode] == null ? 0 : 1);
+                if (deferred[mode] != null) {
+                    out.putString(deferred[mode]);
+                    continue;
+                }
+                writeUnknown(out, unknownKeys.getOrDefault(modes[mode], Collections.emptyMap()));
+                Object[] modeValues = values[mode];
+                int count = 0;
+                for (int id = 0; id < size; id++) {
+                    if (modeValues[id] != null)
+                        count++;
+                }
+                out.putInt(count);
+                for (int id = 0; id < size; id++) {
+                    if (modeValues[id] == null)
+                        continue;
+                    out.putString(keys[id]).putValue(modeValues[id]);
+                    String comment = comments[mode][id];
+                    out.putByte(comment == null ? 0 : 1);
+                    if (comment != null)
+                        out.putString(comment);
+                }
+            }
+        }
+    }
+}
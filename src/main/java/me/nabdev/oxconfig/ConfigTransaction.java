@@ -0,0 +1,210 @@
+package me.nabdev.oxconfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of edits to any number of keys in any modes, applied all at once. Every
+ * value is validated as it is added, and on commit the edits are written to the
+ * config together, the setters of the changed keys in the current mode run in
+ * one batch, and the config file and NT clients are updated once. Nothing is
+ * applied until commit(), so robot code never sees a partly applied set of
+ * values.
+ *
+ * Start one with OxConfig.beginTransaction():
+ *
+ * <pre>
+ * OxConfig.beginTransaction()
+ *         .set("drive/kP", 0.12)
+ *         .set("drive/kD", 0.01)
+ *         .setAll("drive/maxSpeed", 4.5)
+ *         .commit();
+ * </pre>
+ *
+ * A transaction can only be committed or rolled back once.
+ */
+public final class ConfigTransaction {
+    private final List<Edit> edits = new ArrayList<>();
+    private boolean finished = false;
+
+    ConfigTransaction() {
+    }
+
+    /**
+     * Sets the value of a key in the current mode, as of when the transaction is
+     * applied
+     *
+     * @param key   The key
+     * @param value The new value, of the type of the key's parameter
+     * @return This transaction
+     * @throws IllegalArgumentException If the key isn't registered or the value
+     *                                  can't be stored under it
+     */
+    public ConfigTransaction set(String key, Object value) {
+        return add(null, key, value, null);
+    }
+
+    /**
+     * Sets the value of a key in a mode
+     *
+     * @param mode  The mode
+     * @param key   The key
+     * @param value The new value, of the type of the key's parameter
+     * @return This transaction
+     * @throws IllegalArgumentException If the mode or key is invalid, or the value
+     *                                  can't be stored under the key
+     */
+    public ConfigTransaction set(String mode, String key, Object value) {
+        checkMode(mode);
+        return add(mode, key, value, null);
+    }
+
+    /**
+     * Sets the value of a key in every mode
+     *
+     * @param key   The key
+     * @param value The new value, of the type of the key's parameter
+     * @return This transaction
+     * @throws IllegalArgumentException If the key isn't registered or the value
+     *                                  can't be stored under it
+     */
+    public ConfigTransaction setAll(String key, Object value) {
+        for (String mode : ModeSelector.modes) {
+            add(mode, key, value, null);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the comment of a key in every mode, for keys that store one
+     *
+     * @param key     The key
+     * @param comment The comment
+     * @return This transaction
+     * @throws IllegalArgumentException If the key isn't registered
+     */
+    public ConfigTransaction setComment(String key, String comment) {
+        if (comment == null)
+            throw new IllegalArgumentException("Comment cannot be null");
+        for (String mode : ModeSelector.modes) {
+            add(mode, key, null, comment);
+        }
+        return this;
+    }
+
+    /**
+     * Gets how many edits have been added
+     *
+     * @return The number of edits, counting each mode separately
+     */
+    public int size() {
+        return edits.size();
+    }
+
+    /**
+     * Applies every edit at once on the OxConfig thread. Edits that don't change
+     * anything are skipped. Use OxConfig.awaitApplied() to wait for the setters
+     * to finish.
+     *
+     * @throws IllegalArgumentException If a key or mode is no longer valid, in
+     *                                  which case nothing is applied
+     * @throws IllegalStateException    If the transaction was already committed or
+     *                                  rolled back, or OxConfig has too many
+     *                                  commands queued to accept it
+     */
+    public void commit() {
+        finish();
+        if (edits.isEmpty())
+            return;
+        // Checked again here, on the caller's thread, so a bad edit throws to the
+        // code that made it instead of being dropped on the OxConfig thread
+        for (Edit edit : edits) {
+            if (OxConfig.getConfigurable(edit.key) == null)
+                throw new IllegalArgumentException("Invalid key: " + edit.key);
+            if (edit.mode != null)
+                checkMode(edit.mode);
+        }
+        List<Edit> committed = List.copyOf(edits);
+        if (!OxConfig.queueCommand(() -> OxConfig.applyTransaction(committed)))
+            throw new IllegalStateException("The OxConfig command queue is full, the transaction was dropped");
+    }
+
+    /**
+     * Discards every edit without applying any of them. Edits are only applied by
+     * commit(), so this just clears the pending edits. It can't undo a committed
+     * transaction, use OxConfig.undo() for that.
+     *
+     * @throws IllegalStateException If the transaction was already committed or
+     *                               rolled back
+     */
+    public void rollback() {
+        finish();
+        edits.clear();
+    }
+
+    private void finish() {
+        if (finished)
+            throw new IllegalStateException("The transaction was already committed or rolled back");
+        finished = true;
+    }
+
+    private ConfigTransaction add(String mode, String key, Object value, String comment) {
+        if (finished)
+            throw new IllegalStateException("The transaction was already committed or rolled back");
+        // Read from the registry, since the ConfigTable may not have the key until
+        // the handler thread gets to it
+        Configurable<?> configurable = OxConfig.getConfigurable(key);
+        if (configurable == null || key.equalsIgnoreCase("root/mode"))
+            throw new IllegalArgumentException("Invalid key: " + key);
+        Object json = null;
+        if (value != null) {
+            try {
+                json = encode(configurable, value);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid value for key " + key + ": " + e.getMessage(), e);
+            }
+        }
+        edits.add(new Edit(mode, key, json, comment));
+        return this;
+    }
+
+    private static void checkMode(String mode) {
+        if (!Arrays.asList(ModeSelector.modes).contains(mode))
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+    }
+
+    /**
+     * Converts a value to the JSON type its key is stored as. Values of another
+     * type (an Integer for a Double parameter, or JSON) go through the codec's
+     * decoder first.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Object encode(Configurable<T> configurable, Object value) {
+        ValueCodec<T> codec = configurable.getCodec();
+        T current = configurable.get();
+        if (current == null || current.getClass().isInstance(value))
+            return codec.toJson((T) value);
+        return codec.toJson(codec.fromJson(value));
+    }
+
+    /**
+     * One validated edit
+     */
+    static final class Edit {
+        // The mode, or null for the current mode
+        final String mode;
+        final String key;
+        // The value as stored in the config, or null to keep the value
+        final Object value;
+        // The comment, or null to keep the comment
+        final String comment;
+
+        Edit(String mode, String key, Object value, String comment) {
+            this.mode = mode;
+            this.key = key;
+            this.value = value;
+            this.comment = comment;
+        }
+    }
+}
@@ -6,4 +6,6 @@ interface Configurable<T> {
     public void set(T val);
 
     public boolean shouldStoreComment();
+
+    public ValueCodec<T> getCodec();
 }
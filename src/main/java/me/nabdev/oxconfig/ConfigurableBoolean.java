@@ -0,0 +1,89 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.Consumer;
+
+/**
+ * A single boolean parameter that can be configured by OxConfig. The value is
+ * stored as a primitive, so reading it with getAsBoolean() never unboxes or
+ * allocates. The setter receives
+ * the cached Boolean.TRUE/FALSE instances, so it does not allocate either.
+ */
+public class ConfigurableBoolean extends ConfigurableParameter<Boolean> implements BooleanConfigurable {
+    private volatile boolean primitiveValue;
+    private final Consumer<Boolean> primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableBoolean with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val Default value
+     * @param key json key to register with (e.g. "driveTrainMaxSpeed"), must not
+     *            include commas
+     */
+    public ConfigurableBoolean(boolean val, String key) {
+        this(val, key, (Boolean t) -> {
+        });
+    }
+
+    /**
+     * Creates a new ConfigurableBoolean with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val      Default value
+     * @param key      json key to register with (e.g. "driveTrain/maxSpeed"), must
+     *                 not include commas
+     * @param callback Callback function on value change
+     */
+    public ConfigurableBoolean(boolean val, String key, Consumer<Boolean> callback) {
+        super(ValueCodecs.BOOLEAN, key);
+        primitiveValue = val;
+        primitiveSetter = callback;
+        OxConfig.registerParameter(key, this);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public boolean getAsBoolean() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setBoolean(boolean val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsBoolean(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Boolean get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Boolean val) {
+        setBoolean(val);
+    }
+}
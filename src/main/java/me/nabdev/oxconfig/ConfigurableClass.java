@@ -1,6 +1,7 @@
 package me.nabdev.oxconfig;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Interface for classes that can be automatically configured by OxConfig
@@ -32,4 +33,15 @@ public interface ConfigurableClass {
     default String getPrettyName() {
         return getKey();
     };
+
+    /**
+     * Called once after OxConfig has finished updating the parameters of this
+     * class, after each individual parameter setter has been called. Override
+     * this to apply expensive configuration (e.g. configuring a motor controller
+     * over CAN) once per reload instead of once per parameter.
+     * 
+     * @param changed The parameters whose values changed, never empty
+     */
+    default void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+    }
 }
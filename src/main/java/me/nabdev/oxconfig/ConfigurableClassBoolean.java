@@ -0,0 +1,87 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.Consumer;
+
+/**
+ * A boolean parameter for use with ConfigurableClass. The value is stored as a
+ * primitive, so reading it with getAsBoolean() never unboxes or allocates. The setter receives
+ * the cached Boolean.TRUE/FALSE instances, so it does not allocate either.
+ */
+public class ConfigurableClassBoolean extends ConfigurableClassParam<Boolean> implements BooleanConfigurable {
+    private volatile boolean primitiveValue;
+    private final Consumer<Boolean> primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableClassBoolean with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param setter  Setter method for the value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassBoolean(ConfigurableClass myClass, boolean val, Consumer<Boolean> setter, String key) {
+        super(myClass, ValueCodecs.BOOLEAN, key);
+        primitiveValue = val;
+        primitiveSetter = setter;
+    }
+
+    /**
+     * Creates a new ConfigurableClassBoolean with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassBoolean(ConfigurableClass myClass, boolean val, String key) {
+        this(myClass, val, (Boolean t) -> {
+        }, key);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public boolean getAsBoolean() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setBoolean(boolean val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsBoolean(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Boolean get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Boolean val) {
+        setBoolean(val);
+    }
+}
@@ -0,0 +1,86 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * A double parameter for use with ConfigurableClass. The value is stored as a
+ * primitive, so reading it with getAsDouble() never unboxes or allocates.
+ */
+public class ConfigurableClassDouble extends ConfigurableClassParam<Double> implements DoubleConfigurable {
+    private volatile double primitiveValue;
+    private final DoubleConsumer primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableClassDouble with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param setter  Setter method for the value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassDouble(ConfigurableClass myClass, double val, DoubleConsumer setter, String key) {
+        super(myClass, ValueCodecs.DOUBLE, key);
+        primitiveValue = val;
+        primitiveSetter = setter;
+    }
+
+    /**
+     * Creates a new ConfigurableClassDouble with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassDouble(ConfigurableClass myClass, double val, String key) {
+        this(myClass, val, (double t) -> {
+        }, key);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public double getAsDouble() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setDouble(double val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsDouble(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Double get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Double val) {
+        setDouble(val);
+    }
+}
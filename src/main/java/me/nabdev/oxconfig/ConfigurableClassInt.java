@@ -0,0 +1,86 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A int parameter for use with ConfigurableClass. The value is stored as a
+ * primitive, so reading it with getAsInt() never unboxes or allocates.
+ */
+public class ConfigurableClassInt extends ConfigurableClassParam<Integer> implements IntConfigurable {
+    private volatile int primitiveValue;
+    private final IntConsumer primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableClassInt with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param setter  Setter method for the value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassInt(ConfigurableClass myClass, int val, IntConsumer setter, String key) {
+        super(myClass, ValueCodecs.INTEGER, key);
+        primitiveValue = val;
+        primitiveSetter = setter;
+    }
+
+    /**
+     * Creates a new ConfigurableClassInt with the given value and key
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param val     Default value
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    public ConfigurableClassInt(ConfigurableClass myClass, int val, String key) {
+        this(myClass, val, (int t) -> {
+        }, key);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public int getAsInt() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setInt(int val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsInt(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Integer get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Integer val) {
+        setInt(val);
+    }
+}
@@ -8,11 +8,13 @@ import java.util.function.Consumer;
  * @param <T> The type of the parameter
  */
 public class ConfigurableClassParam<T> implements Configurable<T> {
-    private T value;
+    // Unused by the primitive subclasses, which keep their own value and setter
+    private volatile T value;
     private final Consumer<T> setter;
     private final String key;
     private final String prettyName;
     private final ConfigurableClass myClass;
+    private final ValueCodec<T> codec;
 
     /**
      * Sets the value of the parameter and calls the setter method
@@ -47,6 +49,16 @@ public class ConfigurableClassParam<T> implements Configurable<T> {
         return false;
     }
 
+    /**
+     * Gets the codec used to read and write this parameter from the config
+     * 
+     * @return The codec for the type of this parameter
+     */
+    @Override
+    public ValueCodec<T> getCodec() {
+        return codec;
+    }
+
     String getKey() {
         return myClass.getKey() + "/" + key;
     }
@@ -55,6 +67,10 @@ public class ConfigurableClassParam<T> implements Configurable<T> {
         return prettyName;
     }
 
+    ConfigurableClass getConfigurableClass() {
+        return myClass;
+    }
+
     /**
      * Creates a new ConfigurableClassParam with the given value and key
      * 
@@ -68,7 +84,8 @@ public class ConfigurableClassParam<T> implements Configurable<T> {
         if (key.contains(",")) {
             throw new IllegalArgumentException("Key must not contain commas: " + key);
         }
-        if (val.toString().contains(",")) {
+        codec = ValueCodecs.resolve(val);
+        if (codec.format(val).contains(",")) {
             throw new IllegalArgumentException("Value must not contain commas: " + val);
         }
         value = val;
@@ -91,7 +108,8 @@ public class ConfigurableClassParam<T> implements Configurable<T> {
         if (key.contains(",")) {
             throw new IllegalArgumentException("Key must not contain commas: " + key);
         }
-        if (val.toString().contains(",")) {
+        codec = ValueCodecs.resolve(val);
+        if (codec.format(val).contains(",")) {
             throw new IllegalArgumentException("Value must not contain commas: " + val);
         }
         value = val;
@@ -102,4 +120,26 @@ public class ConfigurableClassParam<T> implements Configurable<T> {
         String[] split = key.split("/");
         this.prettyName = split[split.length - 1];
     }
+
+    /**
+     * Creates a new ConfigurableClassParam without a value or setter, for the
+     * primitive subclasses, which override get() and set()
+     * 
+     * @param myClass The ConfigurableClass that this parameter belongs to
+     * @param codec   The codec of the primitive type
+     * @param key     The json key for the value to be stored in (e.g. "kP"), must
+     *                not include commas
+     */
+    ConfigurableClassParam(ConfigurableClass myClass, ValueCodec<T> codec, String key) {
+        if (key.contains(",")) {
+            throw new IllegalArgumentException("Key must not contain commas: " + key);
+        }
+        value = null;
+        this.setter = null;
+        this.codec = codec;
+        this.key = key;
+        this.myClass = myClass;
+        String[] split = key.split("/");
+        this.prettyName = split[split.length - 1];
+    }
 }
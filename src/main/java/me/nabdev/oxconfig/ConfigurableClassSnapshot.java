@@ -0,0 +1,109 @@
+package me.nabdev.oxconfig;
+
+import java.util.List;
+
+/**
+ * An immutable copy of every parameter value of a ConfigurableClass, taken
+ * after OxConfig finished updating all of them. Reading several values from
+ * one snapshot guarantees they all come from the same reload, even while the
+ * OxConfig thread is applying a new one.
+ *
+ * Get the latest snapshot with OxConfig.getSnapshot().
+ */
+public final class ConfigurableClassSnapshot {
+    private final List<ConfigurableClassParam<?>> params;
+    private final Object[] values;
+    private final double[] doubles;
+    private final int[] ints;
+    private final boolean[] booleans;
+
+    private ConfigurableClassSnapshot(List<ConfigurableClassParam<?>> params) {
+        int size = params.size();
+        this.params = params;
+        this.values = new Object[size];
+        this.doubles = new double[size];
+        this.ints = new int[size];
+        this.booleans = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            ConfigurableClassParam<?> param = params.get(i);
+            // Primitive parameters are stored unboxed, everything else by reference
+            if (param instanceof DoubleConfigurable) {
+                doubles[i] = ((DoubleConfigurable) param).getAsDouble();
+            } else if (param instanceof IntConfigurable) {
+                ints[i] = ((IntConfigurable) param).getAsInt();
+            } else if (param instanceof BooleanConfigurable) {
+                booleans[i] = ((BooleanConfigurable) param).getAsBoolean();
+            } else {
+                values[i] = param.get();
+            }
+        }
+    }
+
+    /**
+     * Captures the current parameter values of a class
+     *
+     * @param configurableClass The class to capture
+     * @return The snapshot
+     */
+    static ConfigurableClassSnapshot capture(ConfigurableClass configurableClass) {
+        return new ConfigurableClassSnapshot(List.copyOf(configurableClass.getParameters()));
+    }
+
+    /**
+     * Gets the value of a parameter at the time of this snapshot
+     *
+     * @param <T>   The type of the parameter
+     * @param param The parameter, which must belong to the snapshotted class
+     * @return The value of the parameter
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ConfigurableClassParam<T> param) {
+        int i = indexOf(param);
+        if (param instanceof DoubleConfigurable)
+            return (T) Double.valueOf(doubles[i]);
+        if (param instanceof IntConfigurable)
+            return (T) Integer.valueOf(ints[i]);
+        if (param instanceof BooleanConfigurable)
+            return (T) Boolean.valueOf(booleans[i]);
+        return (T) values[i];
+    }
+
+    /**
+     * Gets the value of a double parameter at the time of this snapshot
+     *
+     * @param param The parameter, which must belong to the snapshotted class
+     * @return The value of the parameter
+     */
+    public double getDouble(ConfigurableClassDouble param) {
+        return doubles[indexOf(param)];
+    }
+
+    /**
+     * Gets the value of an int parameter at the time of this snapshot
+     *
+     * @param param The parameter, which must belong to the snapshotted class
+     * @return The value of the parameter
+     */
+    public int getInt(ConfigurableClassInt param) {
+        return ints[indexOf(param)];
+    }
+
+    /**
+     * Gets the value of a boolean parameter at the time of this snapshot
+     *
+     * @param param The parameter, which must belong to the snapshotted class
+     * @return The value of the parameter
+     */
+    public boolean getBoolean(ConfigurableClassBoolean param) {
+        return booleans[indexOf(param)];
+    }
+
+    private int indexOf(ConfigurableClassParam<?> param) {
+        // Classes only have a handful of parameters, so a scan is cheaper than a map
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i) == param)
+                return i;
+        }
+        throw new IllegalArgumentException("Parameter " + param.getKey() + " is not part of this snapshot");
+    }
+}
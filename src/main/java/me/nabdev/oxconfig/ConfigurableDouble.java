@@ -0,0 +1,88 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * A single double parameter that can be configured by OxConfig. The value is
+ * stored as a primitive, so reading it with getAsDouble() never unboxes or
+ * allocates.
+ */
+public class ConfigurableDouble extends ConfigurableParameter<Double> implements DoubleConfigurable {
+    private volatile double primitiveValue;
+    private final DoubleConsumer primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableDouble with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val Default value
+     * @param key json key to register with (e.g. "driveTrainMaxSpeed"), must not
+     *            include commas
+     */
+    public ConfigurableDouble(double val, String key) {
+        this(val, key, (double t) -> {
+        });
+    }
+
+    /**
+     * Creates a new ConfigurableDouble with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val      Default value
+     * @param key      json key to register with (e.g. "driveTrain/maxSpeed"), must
+     *                 not include commas
+     * @param callback Callback function on value change
+     */
+    public ConfigurableDouble(double val, String key, DoubleConsumer callback) {
+        super(ValueCodecs.DOUBLE, key);
+        primitiveValue = val;
+        primitiveSetter = callback;
+        OxConfig.registerParameter(key, this);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public double getAsDouble() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setDouble(double val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsDouble(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Double get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Double val) {
+        setDouble(val);
+    }
+}
@@ -0,0 +1,88 @@
+package me.nabdev.oxconfig;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A single int parameter that can be configured by OxConfig. The value is
+ * stored as a primitive, so reading it with getAsInt() never unboxes or
+ * allocates.
+ */
+public class ConfigurableInt extends ConfigurableParameter<Integer> implements IntConfigurable {
+    private volatile int primitiveValue;
+    private final IntConsumer primitiveSetter;
+
+    /**
+     * Creates a new ConfigurableInt with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val Default value
+     * @param key json key to register with (e.g. "driveTrainMaxSpeed"), must not
+     *            include commas
+     */
+    public ConfigurableInt(int val, String key) {
+        this(val, key, (int t) -> {
+        });
+    }
+
+    /**
+     * Creates a new ConfigurableInt with the given value and key, and registers
+     * it with the OxConfig
+     * 
+     * @param val      Default value
+     * @param key      json key to register with (e.g. "driveTrain/maxSpeed"), must
+     *                 not include commas
+     * @param callback Callback function on value change
+     */
+    public ConfigurableInt(int val, String key, IntConsumer callback) {
+        super(ValueCodecs.INTEGER, key);
+        primitiveValue = val;
+        primitiveSetter = callback;
+        OxConfig.registerParameter(key, this);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public int getAsInt() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void setInt(int val) {
+        primitiveValue = val;
+        primitiveSetter.accept(val);
+    }
+
+    /**
+     * Gets the current value of the parameter since the last reload. Prefer
+     * getAsInt(), which does not box the value.
+     * 
+     * @return The current value of the parameter
+     */
+    @Override
+    public Integer get() {
+        return primitiveValue;
+    }
+
+    /**
+     * Sets the value of the parameter and calls the setter method
+     * Note: This does not save the value to the config file and will be overwritten
+     * on reload
+     * 
+     * @param val The new value
+     */
+    @Override
+    public void set(Integer val) {
+        setInt(val);
+    }
+}
@@ -10,8 +10,10 @@ import java.util.function.Consumer;
  * @param <T> The type of the parameter
  */
 public class ConfigurableParameter<T> implements Configurable<T> {
-    T value;
-    Consumer<T> setter;
+    // Unused by the primitive subclasses, which keep their own value and setter
+    private volatile T value;
+    private final Consumer<T> setter;
+    private final ValueCodec<T> codec;
 
     /**
      * Sets the value of the parameter and calls the setter method
@@ -44,6 +46,16 @@ public class ConfigurableParameter<T> implements Configurable<T> {
         return true;
     }
 
+    /**
+     * Gets the codec used to read and write this parameter from the config
+     * 
+     * @return The codec for the type of this parameter
+     */
+    @Override
+    public ValueCodec<T> getCodec() {
+        return codec;
+    }
+
     /**
      * Creates a new ConfigurableParameter with the given value and key, and
      * registers it with the OxConfig
@@ -56,7 +68,8 @@ public class ConfigurableParameter<T> implements Configurable<T> {
         if (key.contains(",")) {
             throw new IllegalArgumentException("Key must not contain commas: " + key);
         }
-        if (val.toString().contains(",")) {
+        codec = ValueCodecs.resolve(val);
+        if (codec.format(val).contains(",")) {
             throw new IllegalArgumentException("Value must not contain commas: " + val);
         }
         value = val;
@@ -78,11 +91,29 @@ public class ConfigurableParameter<T> implements Configurable<T> {
         if (key.contains(",")) {
             throw new IllegalArgumentException("Key must not contain commas: " + key);
         }
-        if (val.toString().contains(",")) {
+        codec = ValueCodecs.resolve(val);
+        if (codec.format(val).contains(",")) {
             throw new IllegalArgumentException("Value must not contain commas: " + val);
         }
         value = val;
         setter = callback;
         OxConfig.registerParameter(key, this);
     }
+
+    /**
+     * Creates a new ConfigurableParameter without a value or setter, for the
+     * primitive subclasses, which override get() and set() and register
+     * themselves once they are initialized
+     * 
+     * @param codec The codec of the primitive type
+     * @param key   json key to register with, must not include commas
+     */
+    ConfigurableParameter(ValueCodec<T> codec, String key) {
+        if (key.contains(",")) {
+            throw new IllegalArgumentException("Key must not contain commas: " + key);
+        }
+        this.codec = codec;
+        value = null;
+        setter = null;
+    }
 }
@@ -0,0 +1,11 @@
+package me.nabdev.oxconfig;
+
+/**
+ * A configurable that stores a primitive double, which OxConfig can read and
+ * set without boxing
+ */
+interface DoubleConfigurable {
+    public double getAsDouble();
+
+    public void setDouble(double val);
+}
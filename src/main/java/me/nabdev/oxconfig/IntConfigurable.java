@@ -0,0 +1,11 @@
+package me.nabdev.oxconfig;
+
+/**
+ * A configurable that stores a primitive int, which OxConfig can read and set
+ * without boxing
+ */
+interface IntConfigurable {
+    public int getAsInt();
+
+    public void setInt(int val);
+}
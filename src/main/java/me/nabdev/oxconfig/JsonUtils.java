@@ -1,67 +1,70 @@
 package me.nabdev.oxconfig;
 
-import static me.nabdev.oxconfig.OxConfig.config;
-
-import org.json.JSONObject;
-
 /**
- * A helper class for interfacing with org.json
+ * A helper class for reading and editing config values, stored in the
+ * ConfigTable and serialized with org.json
  */
 class JsonUtils {
 
     /**
-     * If we need to reconstruct the json string.
-     * 
-     * This is really here as a leftover from the yaml system, which was much slower
-     * to create a string of, but I figure why make it slower now
+     * Get the real value of a key, as the JSON type it is stored as
+     *
+     * @param mode The mode to get the value from
+     * @param key  The key to get the value for
+     * @return The real value of the key
      */
-    static boolean dirty = false;
+    static Object getRawValue(String mode, String key) {
+        return ConfigTable.get(modeIndex(mode), id(key));
+    }
 
     /**
-     * Get the JSON Mapping for the given mode
-     * 
-     * @param mode The mode to get the mapping for
-     * @return The mapping for the given mode
+     * Get the value of a key formatted as text for the NT interface
+     *
+     * @param mode         The mode to get the value from
+     * @param key          The key to get the value for
+     * @param configurable The configurable stored under the key
+     * @return The formatted value of the key
      */
-    static JSONObject getModeMap(String mode) {
-        return getJSONObject(config, mode);
+    static <T> String getFormattedValue(String mode, String key, Configurable<T> configurable) {
+        return formatValue(configurable, getRawValue(mode, key));
     }
 
     /**
-     * Get the JSON Object for the given key, creating it if it does not exist
-     * 
-     * @param obj The object to get the key from
-     * @param key The key to get
-     * @return The JSON Object for the given key
+     * Format a value as stored in the config as text for the NT interface. Values
+     * the codec can't read (such as a hand edited typo) are sent as their JSON
+     * text, so the user can see and fix them.
+     *
+     * @param configurable The configurable the value is for
+     * @param raw          The value as stored in the config
+     * @return The formatted value
      */
-    static JSONObject getJSONObject(JSONObject obj, String key) {
-        if (!obj.has(key)) {
-            obj.put(key, new JSONObject());
+    static <T> String formatValue(Configurable<T> configurable, Object raw) {
+        ValueCodec<T> codec = configurable.getCodec();
+        try {
+            return codec.format(codec.fromJson(raw));
+        } catch (RuntimeException e) {
+            return raw instanceof String ? (String) raw : String.valueOf(raw);
         }
-        return obj.getJSONObject(key);
     }
 
     /**
-     * Get the real value of a key
-     * 
-     * @param map The map to get the value from
-     * @param key The key to get the value for
-     * @return The real value of the key
+     * Get the comment of a key in the given mode
+     *
+     * @param mode The mode to get the comment from
+     * @param key  The key to get the comment for
+     * @return The comment, or "Auto-Generated" if the key has none
      */
-    static String getRealValue(JSONObject map, String key, boolean shouldStoreComment) {
-        if (key.equals("mode") || !shouldStoreComment) {
-            return map.getString(key);
-        }
-        return getJSONObject(map, key).getString("value");
+    static String getComment(String mode, String key) {
+        return ConfigTable.getComment(modeIndex(mode), id(key));
     }
 
     /**
      * Ensure the mode key exists
-     * 
+     *
      * @param mode The default mode to use if the key does not exist
      */
     static void ensureModeExists(String mode) {
-        if (!config.has("mode")) {
+        if (ConfigTable.getRootMode() == null) {
             Logger.logInfo("Mode key does not exist, creating");
             modifyMode(mode);
         }
@@ -69,121 +72,71 @@ class JsonUtils {
 
     /**
      * Change the current mode
-     * 
+     *
      * @param mode The mode to change to
      */
     static void modifyMode(String mode) {
-        config.put("mode", mode);
-        dirty = true;
+        ConfigTable.setRootMode(mode);
+        // Written in the background with the next file write
+        OxConfig.hasModified = true;
     }
 
     /**
      * Change the value of a key
-     * 
+     *
      * @param mode     the mode to change the value for
      * @param key      The key to change
      * @param newValue The new value
      * @param comment  The comment to add to the key
      */
-    static void modifyValue(String mode, String key, String newValue, String comment) {
-        editMap(true, mode, key, newValue, comment);
+    static void modifyValue(String mode, String key, Object newValue, String comment) {
+        ConfigTable.set(modeIndex(mode), id(key), newValue, comment);
+        edited(key);
     }
 
     /**
-     * Change the value of a key
-     * 
+     * Change the value of a key, keeping its comment
+     *
      * @param mode     the mode to change the value for
      * @param key      The key to change
      * @param newValue The new value
-     * @param comment  The comment to add to the key
      */
-    static void modifyValue(String mode, String key, String newValue) {
-        editMap(true, mode, key, newValue);
+    static void modifyValue(String mode, String key, Object newValue) {
+        modifyValue(mode, key, newValue, null);
     }
 
     /**
-     * Ensures that the given key exists, and if not, adds it with the given default
-     * value.
-     * 
-     * @param mode       The mode to ensure the key exists in
+     * Ensures that the given key exists in every mode, and if not, adds it with the
+     * given default value.
+     *
      * @param key        The key to ensure exists
      * @param defaultVal The default value to use if the key does not exist
      */
-    static void ensureExists(String mode, String key, String defaultVal, boolean shouldStoreComment) {
-        if (shouldStoreComment) {
-            editMap(false, mode, key, defaultVal, "Auto-Generated");
-        } else {
-            editMap(false, mode, key, defaultVal);
-        }
-
-    }
-
-    /**
-     * Updates the config string to make sure its up to date
-     */
-    static void updateConfigStr() {
-        if (!dirty) {
+    static void ensureExists(String key, Object defaultVal) {
+        if (!ConfigTable.ensure(id(key), defaultVal))
             return;
-        }
-        dirty = false;
-        Logger.logInfo("Updating config string");
-        if (OxConfig.prettyPrintJSON) {
-            OxConfig.configString = config.toString(4);
-        } else {
-            OxConfig.configString = config.toString();
-        }
-
+        OxConfig.hasModified = true;
+        // New keys change the structure, so they need a full update
+        OxConfig.requestNTUpdate();
     }
 
-    /**
-     * For internal use only
-     * 
-     * @param force      Whether to force the key to be changed (toggle between
-     *                   ensure and modify)
-     * @param key        The key to ensure exists
-     * @param defaultVal The default value to use if the key does not exist
-     * @param comment    The comment to add to the key
-     */
-    private static void editMap(boolean force, String mode, String key, String defaultVal, String comment) {
-        // If the key already exists, return the original mapping
-        JSONObject nested = getModeMap(mode);
-        if (!force && nested != null && nested.has(key)) {
-            return;
-        }
-
-        JSONObject newObject = new JSONObject();
-        newObject.put("value", defaultVal);
-        newObject.put("comment", comment);
-        nested.put(key, newObject);
-
-        dirty = true;
+    private static void edited(String key) {
         OxConfig.hasModified = true;
-        synchronized (OxConfig.class) {
-            OxConfig.pendingNTUpdate = true;
-        }
+        // Edits to existing keys only need a delta
+        OxConfig.requestNTDelta(key);
     }
 
-    /**
-     * For internal use only
-     * 
-     * @param force      Whether to force the key to be changed (toggle between
-     *                   ensure and modify)
-     * @param key        The key to ensure exists
-     * @param defaultVal The default value to use if the key does not exist
-     */
-    private static void editMap(boolean force, String mode, String key, String defaultVal) {
-        // If the key already exists, return the original mapping
-        JSONObject nested = getModeMap(mode);
-        if (!force && nested != null && nested.has(key)) {
-            return;
-        }
-
-        nested.put(key, defaultVal);
+    private static int modeIndex(String mode) {
+        int index = ConfigTable.modeIndex(mode);
+        if (index < 0)
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+        return index;
+    }
 
-        dirty = true;
-        OxConfig.hasModified = true;
-        synchronized (OxConfig.class) {
-            OxConfig.pendingNTUpdate = true;
-        }
+    private static int id(String key) {
+        int id = ConfigTable.idOf(key);
+        if (id < 0)
+            throw new IllegalArgumentException("Invalid key: " + key);
+        return id;
     }
 }
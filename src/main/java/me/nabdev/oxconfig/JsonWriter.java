@@ -0,0 +1,349 @@
+package me.nabdev.oxconfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Writes JSON as UTF-8 into a growable byte buffer that is kept between uses,
+ * so serializing the config doesn't build a String (or a JSON tree) of it
+ * first. The keys of JSONObject values are written in sorted order, so the
+ * output only depends on the contents.
+ *
+ * Strings and numbers are written the same way org.json writes them.
+ */
+class JsonWriter {
+    private static final int indentFactor = 4;
+
+    private byte[] buffer = new byte[8192];
+    private int length = 0;
+    private boolean pretty = true;
+    private int depth = 0;
+    // Whether the current object or array has no entries yet, per depth
+    private boolean[] empty = new boolean[16];
+    // Whether a key was just written, so the next value needs no separator
+    private boolean afterKey = false;
+    // The first half of a surrogate pair, written with the second half
+    private char highSurrogate = 0;
+
+    /**
+     * Clears the buffer, keeping its memory for the next use
+     *
+     * @param prettyPrint Whether to indent the output, or minify it
+     */
+    void reset(boolean prettyPrint) {
+        length = 0;
+        depth = 0;
+        afterKey = false;
+        highSurrogate = 0;
+        pretty = prettyPrint;
+    }
+
+    /**
+     * Gets how many bytes have been written
+     *
+     * @return The length of the output
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Hashes the output the same way a config file is hashed for the cache
+     *
+     * @return The hash, see ConfigCache.hash()
+     */
+    long hash() {
+        return ConfigCache.hash(buffer, length);
+    }
+
+    /**
+     * Writes the output to a channel
+     *
+     * @param channel The channel
+     * @throws IOException If the write fails
+     */
+    void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, length);
+        while (wrapped.hasRemaining()) {
+            channel.write(wrapped);
+        }
+    }
+
+    /**
+     * Decodes the output as a String
+     *
+     * @return The output
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes text as is, outside of any JSON structure
+     *
+     * @param text The text
+     * @return This writer
+     */
+    JsonWriter text(String text) {
+        writeChars(text);
+        return this;
+    }
+
+    JsonWriter beginObject() {
+        beforeValue();
+        writeByte('{');
+        push();
+        return this;
+    }
+
+    JsonWriter endObject() {
+        pop('}');
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        beforeValue();
+        writeByte('[');
+        push();
+        return this;
+    }
+
+    JsonWriter endArray() {
+        pop(']');
+        return this;
+    }
+
+    /**
+     * Writes the key of the next object entry
+     *
+     * @param key The key
+     * @return This writer
+     */
+    JsonWriter key(String key) {
+        beforeEntry();
+        writeQuoted(key);
+        writeByte(':');
+        if (pretty)
+            writeByte(' ');
+        afterKey = true;
+        return this;
+    }
+
+    /**
+     * Writes a value: a Number, Boolean, String, JSONArray, JSONObject or null
+     *
+     * @param value The value
+     * @return This writer
+     */
+    JsonWriter value(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            List<String> keys = new ArrayList<>(object.keySet());
+            Collections.sort(keys);
+            beginObject();
+            for (String key : keys) {
+                key(key).value(object.opt(key));
+            }
+            return endObject();
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            beginArray();
+            for (int i = 0; i < array.length(); i++) {
+                value(array.opt(i));
+            }
+            return endArray();
+        }
+        beforeValue();
+        if (value == null || JSONObject.NULL.equals(value)) {
+            writeChars("null");
+        } else if (value instanceof String) {
+            writeQuoted((String) value);
+        } else if (value instanceof Number) {
+            writeChars(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean) {
+            writeChars(value.toString());
+        } else {
+            writeQuoted(value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value that is already JSON text, as read by ConfigParser. It is
+     * written the same way as the value it holds would be, with the keys of
+     * every object sorted and the whitespace of the rest of the output.
+     *
+     * @param raw The JSON text
+     * @return This writer
+     * @throws org.json.JSONException If the text isn't valid JSON
+     */
+    JsonWriter rawValue(String raw) {
+        ConfigParser.write(raw, this);
+        return this;
+    }
+
+    private void push() {
+        depth++;
+        if (depth == empty.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(empty, 0, grown, 0, depth);
+            empty = grown;
+        }
+        empty[depth] = true;
+    }
+
+    private void pop(char close) {
+        boolean wasEmpty = empty[depth];
+        depth--;
+        if (!wasEmpty)
+            newLine();
+        writeByte(close);
+    }
+
+    /**
+     * Writes the separator before an object entry or array element
+     */
+    private void beforeEntry() {
+        if (depth == 0)
+            return;
+        if (!empty[depth])
+            writeByte(',');
+        empty[depth] = false;
+        newLine();
+    }
+
+    private void beforeValue() {
+        // Object values follow their key, array elements need a separator
+        if (afterKey)
+            afterKey = false;
+        else
+            beforeEntry();
+    }
+
+    private void newLine() {
+        if (!pretty)
+            return;
+        int indent = depth * indentFactor;
+        ensureCapacity(indent + 1);
+        buffer[length++] = '\n';
+        Arrays.fill(buffer, length, length + indent, (byte) ' ');
+        length += indent;
+    }
+
+    /**
+     * Writes a quoted string, escaped like JSONObject.quote()
+     */
+    private void writeQuoted(String string) {
+        writeByte('"');
+        char previous = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    writeByte('\\');
+                    writeByte(c);
+                    break;
+                case '/':
+                    if (previous == '<')
+                        writeByte('\\');
+                    writeByte(c);
+                    break;
+                case '\b':
+                    writeChars("\\b");
+                    break;
+                case '\t':
+                    writeChars("\\t");
+                    break;
+                case '\n':
+                    writeChars("\\n");
+                    break;
+                case '\f':
+                    writeChars("\\f");
+                    break;
+                case '\r':
+                    writeChars("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= 0x80 && c < 0xA0) || (c >= 0x2000 && c < 0x2100)) {
+                        String hex = Integer.toHexString(c);
+                        writeChars("\\u");
+                        for (int pad = hex.length(); pad < 4; pad++) {
+                            writeByte('0');
+                        }
+                        writeChars(hex);
+                    } else {
+                        writeChar(c);
+                    }
+            }
+            previous = c;
+        }
+        writeByte('"');
+    }
+
+    private void writeChars(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else {
+                writeChar(c);
+                // The char took more than the one byte reserved for it
+                ensureCapacity(text.length() - i - 1);
+            }
+        }
+    }
+
+    /**
+     * Writes a char as UTF-8, combining surrogate pairs
+     */
+    private void writeChar(char c) {
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            buffer[length++] = (byte) (0xC0 | (c >> 6));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+            int codePoint = Character.toCodePoint(highSurrogate, c);
+            highSurrogate = 0;
+            ensureCapacity(4);
+            buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            ensureCapacity(3);
+            buffer[length++] = (byte) (0xE0 | (c >> 12));
+            buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra <= buffer.length)
+            return;
+        byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,104 @@
+package me.nabdev.oxconfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, safe to record into from
+ * any thread. Durations are bucketed by their highest set bit and the 3 bits
+ * below it, so every bucket is within 12.5% of the durations it holds.
+ */
+class LatencyHistogram {
+    private static final int subBucketBits = 3;
+    private static final int subBucketCount = 1 << subBucketBits;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * subBucketCount);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration
+     *
+     * @param nanos The duration in nanoseconds, negative durations are recorded
+     *              as 0
+     */
+    void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucketIndex(nanos));
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Summarizes everything recorded since the last call, and starts a new
+     * interval. Durations recorded while this runs may land in either interval.
+     *
+     * @return The summary of the interval
+     */
+    Summary snapshotAndReset() {
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+            count += counts[i];
+        }
+        long totalNanos = total.getAndSet(0);
+        long maxNanos = max.getAndSet(0);
+        if (count == 0)
+            return new Summary(0, 0, 0, 0, 0);
+        // Bucket midpoints can overshoot the largest duration recorded
+        return new Summary(count, totalNanos / count, Math.min(percentile(counts, count, 0.5), maxNanos),
+                Math.min(percentile(counts, count, 0.99), maxNanos), maxNanos);
+    }
+
+    private static long percentile(long[] counts, long count, double percentile) {
+        long target = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target)
+                return bucketValue(i);
+        }
+        return bucketValue(counts.length - 1);
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < subBucketCount)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - subBucketBits)) & (subBucketCount - 1);
+        return (exponent - subBucketBits + 1) * subBucketCount + subBucket;
+    }
+
+    /**
+     * Gets the midpoint of the durations a bucket holds
+     */
+    private static long bucketValue(int index) {
+        if (index < subBucketCount)
+            return index;
+        int exponent = index / subBucketCount + subBucketBits - 1;
+        long subBucket = index % subBucketCount;
+        long lowest = (1L << exponent) | (subBucket << (exponent - subBucketBits));
+        return lowest + (1L << (exponent - subBucketBits)) / 2;
+    }
+
+    /**
+     * The durations recorded in one interval, all in nanoseconds
+     */
+    static class Summary {
+        final long count;
+        final long mean;
+        final long p50;
+        final long p99;
+        final long max;
+
+        Summary(long count, long mean, long p50, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+}
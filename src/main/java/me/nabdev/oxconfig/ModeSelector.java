@@ -1,15 +1,17 @@
 package me.nabdev.oxconfig;
 
 import java.util.Arrays;
-
-import edu.wpi.first.wpilibj.RobotBase;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class for selecting the current mode of the robot.
  */
 class ModeSelector {
-    private String currentMode = "competition";
-    private boolean hasInitialized = false;
+    // The mode whose values were last applied by OxConfig.reloadConfig()
+    private volatile String currentMode = "competition";
+    // The mode set since, null once its values are applied
+    private final AtomicReference<String> pendingMode = new AtomicReference<>();
+    private volatile boolean hasInitialized = false;
     final ConfigurableParameter<String> modeParam = new ConfigurableParameter<>(modes[0], "root/mode", this::setMode);
 
     /**
@@ -18,30 +20,34 @@ class ModeSelector {
     public static String[] modes = {
             "competition", "presentation", "simulation"
     };
+    // The modes before OxConfig.setModeList() is called, see OxConfig.reset()
+    static final String[] defaultModes = modes.clone();
 
     /**
      * Set the current OxConfig mode. Is not saved to the config file, and will be
-     * overwritten on code restart, file reload, or mode changed over nt.
+     * overwritten on code restart, file reload, or mode changed over nt. The
+     * values of the new mode are applied on the OxConfig thread, and it only
+     * becomes the current mode once they are. Use OxConfig.awaitApplied() to
+     * wait for them.
      * 
      * @param mode The mode to switch to
      */
     public void setMode(String mode) {
         if (!hasInitialized) {
             hasInitialized = true;
-            if (RobotBase.isSimulation()) {
+            if (OxConfig.isSimulation()) {
                 modeParam.set("simulation");
                 return;
             }
         }
         if (Arrays.asList(modes).contains(mode)) {
-            if (!currentMode.equals(mode)) {
-                currentMode = mode;
-                if (OxConfig.hasInitialized) {
-                    synchronized (OxConfig.class) {
-                        OxConfig.pendingNTUpdate = true;
-                    }
-                    OxConfig.reload();
-                }
+            if (!getTargetMode().equals(mode)) {
+                pendingMode.set(mode);
+                // Reload on the OxConfig thread, so a mode change from robot code doesn't
+                // run every setter on the robot thread. A change made by a reload (the
+                // mode read from the config) is applied by that same reload.
+                if (OxConfig.hasInitialized && !OxConfig.isReloading())
+                    OxConfig.queueCommand(OxConfig::reload);
             }
         } else {
             Logger.logWarning("Invalid mode: " + mode + ". Valid modes are: " + String.join(", ", modes));
@@ -49,11 +55,33 @@ class ModeSelector {
     }
 
     /**
-     * Gets the current mode of the robot
+     * Gets the current mode of the robot, whose values are applied. A mode set
+     * with setMode() only becomes current once its values are applied.
      * 
      * @return The current mode of the robot
      */
     public String getMode() {
         return currentMode;
     }
+
+    /**
+     * Gets the mode the next reload applies
+     * 
+     * @return The last mode set, or the current mode if it was applied
+     */
+    String getTargetMode() {
+        String pending = pendingMode.get();
+        return pending != null ? pending : currentMode;
+    }
+
+    /**
+     * Makes a mode current, once OxConfig.reloadConfig() applied its values. A
+     * mode set while they were being applied stays pending.
+     * 
+     * @param mode The mode that was applied
+     */
+    void applied(String mode) {
+        currentMode = mode;
+        pendingMode.compareAndSet(mode, null);
+    }
 }
@@ -1,15 +1,23 @@
 package me.nabdev.oxconfig;
 
+import java.util.Collection;
 import java.util.Date;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.networktables.StringSubscriber;
 
 /**
  * A helper class for interfacing with NetworkTables
@@ -25,6 +33,18 @@ class NT4Interface {
     private static final NetworkTableEntry copyAllEntry;
     private static final NetworkTableEntry currentModeEntry;
     private static final NetworkTable profiling;
+    // Looking up an entry is much slower than setting it, so they are cached
+    private static final Map<String, NetworkTableEntry> profilingEntries = new ConcurrentHashMap<>();
+    private static final StringSubscriber commandSubscriber;
+    private static final StringPublisher ackPublisher;
+    private static final StringPublisher deltaPublisher;
+    // Reused for every Raw update, only used on the OxConfig thread
+    private static final JsonWriter rawWriter = new JsonWriter();
+    // Incremented for every delta or full update, so clients can detect gaps
+    private static long updateSeq = 0;
+    // How many clients were connected when a command last came in on the
+    // Commands topic, see clientsUseDeltas(). Only used on the OxConfig thread.
+    private static int commandConnections = 0;
     static boolean hasInitialized = false;
 
     static {
@@ -38,6 +58,14 @@ class NT4Interface {
         currentModeEntry = table.getEntry("CurrentMode");
         profiling = table.getSubTable("Profiling");
         copyAllEntry = table.getEntry("CopyAll");
+        // Keep duplicates and queue values so every command and ack is delivered,
+        // even if two identical ones are sent back to back
+        commandSubscriber = table.getStringTopic("Commands").subscribe("", PubSubOption.keepDuplicates(true),
+                PubSubOption.pollStorage(64));
+        ackPublisher = table.getStringTopic("Acks").publish(PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true));
+        deltaPublisher = table.getStringTopic("Delta").publish(PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true));
     }
 
     static void initialize() {
@@ -47,101 +75,159 @@ class NT4Interface {
         modeSetterEntry.setString("");
         copyAllEntry.setString("");
         modesEntry.setString(String.join(",", ModeSelector.modes));
+        listen(keySetterEntry, OxConfig::handleKeySetter);
+        listen(classSetterEntry, OxConfig::handleClassSetter);
+        listen(modeSetterEntry, OxConfig::handleModeSetter);
+        listen(copyAllEntry, OxConfig::handleCopyAll);
+        NetworkTableInstance.getDefault().addListener(commandSubscriber,
+                EnumSet.of(NetworkTableEvent.Kind.kValueRemote), event -> {
+                    NetworkTableValue value = event.valueData.value;
+                    if (!value.isString() || value.getString().isEmpty())
+                        return;
+                    String message = value.getString();
+                    OxConfig.queueCommand(() -> OxConfig.handleCommandMessage(message));
+                });
     }
 
-    static void setProfilingTime(String key, double time) {
-        profiling.getEntry(key).setDouble(time);
+    /**
+     * Acknowledge a command received on the Commands topic
+     * 
+     * @param id    The id of the command
+     * @param error The reason the command was rejected, or null if it succeeded
+     */
+    static void publishAck(long id, String error) {
+        JSONObject ack = new JSONObject();
+        ack.put("id", id);
+        ack.put("ok", error == null);
+        if (error != null)
+            ack.put("error", error);
+        ackPublisher.set(ack.toString());
+    }
+
+    /**
+     * Listens for commands written to an entry by the client, and queues them to
+     * be handled on the OxConfig thread. Every write generates its own event, so
+     * commands sent in quick succession are not lost.
+     * 
+     * @param entry   The entry to listen to
+     * @param handler The handler for the command
+     */
+    private static void listen(NetworkTableEntry entry, Consumer<String> handler) {
+        NetworkTableInstance.getDefault().addListener(entry, EnumSet.of(NetworkTableEvent.Kind.kValueRemote),
+                event -> {
+                    NetworkTableValue value = event.valueData.value;
+                    if (!value.isString() || value.getString().isEmpty())
+                        return;
+                    String command = value.getString();
+                    // Clear the entry to acknowledge the command
+                    entry.setString("");
+                    OxConfig.queueCommand(() -> handler.accept(command));
+                });
     }
 
-    static String getSetKeys() {
-        String key = keySetterEntry.getString("");
-        if (!key.isEmpty()) {
-            keySetterEntry.setString("");
-        }
-        return key;
+    static void setProfilingTime(String key, double time) {
+        getProfilingEntry(key).setDouble(time);
     }
 
-    static String getSetClasses() {
-        String key = classSetterEntry.getString("");
-        if (!key.isEmpty()) {
-            classSetterEntry.setString("");
-        }
-        return key;
+    static void setProfilingString(String key, String value) {
+        getProfilingEntry(key).setString(value);
     }
 
-    static String getSetModes() {
-        String mode = modeSetterEntry.getString("");
-        if (!mode.isEmpty()) {
-            modeSetterEntry.setString("");
-        }
-        return mode;
+    /**
+     * Publish the summary of a profiled phase under Profiling/[key], in ms
+     * 
+     * @param key     The phase
+     * @param summary The durations recorded for the phase since the last flush
+     */
+    static void setProfilingSummary(String key, LatencyHistogram.Summary summary) {
+        getProfilingEntry(key + "/p50").setDouble(TaskTimer.toMs(summary.p50));
+        getProfilingEntry(key + "/p99").setDouble(TaskTimer.toMs(summary.p99));
+        getProfilingEntry(key + "/max").setDouble(TaskTimer.toMs(summary.max));
+        getProfilingEntry(key + "/mean").setDouble(TaskTimer.toMs(summary.mean));
+        getProfilingEntry(key + "/count").setDouble(summary.count);
     }
 
-    static String getCopyAll() {
-        String copyAll = copyAllEntry.getString("");
-        if (!copyAll.isEmpty()) {
-            copyAllEntry.setString("");
-        }
-        return copyAll;
+    private static NetworkTableEntry getProfilingEntry(String key) {
+        return profilingEntries.computeIfAbsent(key, profiling::getEntry);
     }
 
     static void updateClasses(Map<String, ConfigurableClass> configurableClasses) {
-        JSONArray classes = new JSONArray();
-        for (String configClassKey : configurableClasses.keySet()) {
-            JSONArray classArr = new JSONArray();
-            ConfigurableClass configClass = configurableClasses.get(configClassKey);
-            classArr.put(configClass.getPrettyName());
-            classArr.put(configClassKey);
-
-            List<ConfigurableClassParam<?>> parameters = configClass.getParameters();
-            for (ConfigurableClassParam<?> param : parameters) {
-                JSONArray paramArr = new JSONArray();
-                paramArr.put(param.getPrettyName());
-                String key = param.getKey();
-                paramArr.put(key);
-                paramArr.put(param.get().getClass().getSimpleName());
-                for (String mode : ModeSelector.modes) {
-                    JSONObject curModeMap = JsonUtils.getModeMap(mode);
-                    paramArr.put(JsonUtils.getRealValue(curModeMap, key, param.shouldStoreComment()));
-                }
-                classArr.put(paramArr);
-            }
-            classes.put(classArr);
-        }
-        table.getEntry("Classes").setString(classes.toString());
+        table.getEntry("Classes").setString(NTPayloads.buildClasses(configurableClasses).toString());
     }
 
     static void updateParameters(Map<String, ConfigurableParameter<?>> parameters) {
-        JSONArray params = new JSONArray();
-        for (String paramKey : parameters.keySet()) {
-            if (paramKey.equalsIgnoreCase("root/mode")) {
-                continue;
-            }
-            JSONArray paramArr = new JSONArray();
-            ConfigurableParameter<?> param = parameters.get(paramKey);
-            paramArr.put(paramKey);
-
-            // The comment should be the same for all modes. Just pick one, doesn't matter.
-            JSONObject nested = JsonUtils.getModeMap(OxConfig.modeSelector.getMode());
-            JSONObject data = JsonUtils.getJSONObject(nested, paramKey);
-            if (!data.has("comment")) {
-                System.out.println(paramKey);
-            }
-            paramArr.put(data.getString("comment"));
-            // Put the type of the parameter
-            paramArr.put(param.get().getClass().getSimpleName());
-            for (String mode : ModeSelector.modes) {
-                JSONObject curModeNested = JsonUtils.getModeMap(mode);
-                paramArr.put(JsonUtils.getRealValue(curModeNested, paramKey, param.shouldStoreComment()));
-            }
-            params.put(paramArr);
-        }
-        paramsEntry.setString(params.toString());
-    }
-
-    static void updateRaw(String raw) {
-        String timestamp = String.valueOf(new Date().getTime());
-        rawEntry.setString(timestamp + "," + raw);
+        paramsEntry.setString(NTPayloads.buildParameters(parameters).toString());
+    }
+
+    /**
+     * Publish the values of only the given keys on the Delta topic, as
+     * {"seq": n, "version": v, "changes": [{"key": key, "values": [value per
+     * mode], "comment": comment}, ...]}. Values are in the same order and format
+     * as in Params. The version is the config version the values are from, which
+     * a client can later send in a "since" command.
+     * 
+     * @param keys         The keys that changed
+     * @param configValues All registered configurables
+     */
+    static void publishDelta(Collection<String> keys, Map<String, Configurable<?>> configValues) {
+        JSONArray changes = NTPayloads.buildDeltaChanges(keys, configValues);
+        JSONObject delta = new JSONObject();
+        delta.put("seq", ++updateSeq);
+        delta.put("version", ConfigTable.latestVersion());
+        delta.put("changes", changes);
+        deltaPublisher.set(delta.toString());
+    }
+
+    /**
+     * Tell clients a full update was just published, so they should reread
+     * Params, Classes and Raw, as {"seq": n, "version": v, "full": true}
+     */
+    static void publishFullSync() {
+        JSONObject sync = new JSONObject();
+        sync.put("seq", ++updateSeq);
+        sync.put("version", ConfigTable.latestVersion());
+        sync.put("full", true);
+        deltaPublisher.set(sync.toString());
+    }
+
+    /**
+     * Checks if any client is connected to NetworkTables
+     * 
+     * @return Whether there is a client to publish to
+     */
+    static boolean hasClients() {
+        return NetworkTableInstance.getDefault().getConnections().length > 0;
+    }
+
+    /**
+     * Records that a client sent a command on the Commands topic, which only
+     * clients that read the Delta topic use
+     */
+    static void commandReceived() {
+        commandConnections = NetworkTableInstance.getDefault().getConnections().length;
+    }
+
+    /**
+     * Checks if the connected clients read the Delta topic. Clients that only read
+     * Params, Classes and Raw never send commands, so deltas are only sent if no
+     * client connected since a command last came in.
+     * 
+     * @return Whether edits can be sent as deltas
+     */
+    static boolean clientsUseDeltas() {
+        int connections = NetworkTableInstance.getDefault().getConnections().length;
+        // A client that disconnected may come back as one that doesn't read deltas
+        if (connections < commandConnections)
+            commandConnections = connections;
+        return connections > 0 && connections <= commandConnections;
+    }
+
+    static void updateRaw() {
+        rawWriter.reset(OxConfig.prettyPrintJSON);
+        rawWriter.text(String.valueOf(new Date().getTime())).text(",");
+        // Committed by publishNTUpdates() just before
+        ConfigTable.committed().write(rawWriter);
+        rawEntry.setString(rawWriter.toString());
     }
 
     static void updateMode() {
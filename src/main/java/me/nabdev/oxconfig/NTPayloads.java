@@ -0,0 +1,116 @@
+package me.nabdev.oxconfig;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Builds the JSON payloads published by NT4Interface. Kept separate from
+ * NT4Interface so they can be built (and benchmarked) without NetworkTables.
+ */
+class NTPayloads {
+    /**
+     * Builds the Classes payload, an array of [prettyName, key, [prettyName, key,
+     * type, value per mode]...] per class
+     *
+     * @param configurableClasses All registered classes
+     * @return The payload
+     */
+    static JSONArray buildClasses(Map<String, ConfigurableClass> configurableClasses) {
+        JSONArray classes = new JSONArray();
+        for (String configClassKey : configurableClasses.keySet()) {
+            JSONArray classArr = new JSONArray();
+            ConfigurableClass configClass = configurableClasses.get(configClassKey);
+            classArr.put(configClass.getPrettyName());
+            classArr.put(configClassKey);
+
+            List<ConfigurableClassParam<?>> parameters = configClass.getParameters();
+            for (ConfigurableClassParam<?> param : parameters) {
+                JSONArray paramArr = new JSONArray();
+                paramArr.put(param.getPrettyName());
+                String key = param.getKey();
+                paramArr.put(key);
+                paramArr.put(param.getCodec().getTypeName());
+                putValues(paramArr, ConfigTable.idOf(key), param);
+                classArr.put(paramArr);
+            }
+            classes.put(classArr);
+        }
+        return classes;
+    }
+
+    /**
+     * Builds the Params payload, an array of [key, comment, type, value per
+     * mode] per parameter
+     *
+     * @param parameters All registered parameters
+     * @return The payload
+     */
+    static JSONArray buildParameters(Map<String, ConfigurableParameter<?>> parameters) {
+        JSONArray params = new JSONArray();
+        for (String paramKey : parameters.keySet()) {
+            if (paramKey.equalsIgnoreCase("root/mode")) {
+                continue;
+            }
+            JSONArray paramArr = new JSONArray();
+            ConfigurableParameter<?> param = parameters.get(paramKey);
+            paramArr.put(paramKey);
+
+            // The comment should be the same for all modes. Just pick one, doesn't matter.
+            int id = ConfigTable.idOf(paramKey);
+            paramArr.put(ConfigTable.getComment(currentModeIndex(), id));
+            // Put the type of the parameter
+            paramArr.put(param.getCodec().getTypeName());
+            putValues(paramArr, id, param);
+            params.put(paramArr);
+        }
+        return params;
+    }
+
+    /**
+     * Builds the changes of a Delta payload, a {"key": key, "values": [value per
+     * mode], "comment": comment} object per key
+     *
+     * @param keys         The keys that changed
+     * @param configValues All registered configurables
+     * @return The changes
+     */
+    static JSONArray buildDeltaChanges(Collection<String> keys, Map<String, Configurable<?>> configValues) {
+        JSONArray changes = new JSONArray();
+        for (String key : keys) {
+            Configurable<?> configurable = configValues.get(key);
+            if (configurable == null)
+                continue;
+            int id = ConfigTable.idOf(key);
+            JSONObject change = new JSONObject();
+            change.put("key", key);
+            JSONArray values = new JSONArray();
+            putValues(values, id, configurable);
+            change.put("values", values);
+            if (configurable.shouldStoreComment())
+                change.put("comment", ConfigTable.getComment(currentModeIndex(), id));
+            changes.put(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Puts the formatted value of a key in each mode into an array, an empty
+     * string for modes without a value
+     */
+    private static void putValues(JSONArray array, int id, Configurable<?> configurable) {
+        for (int mode = 0; mode < ModeSelector.modes.length; mode++) {
+            if (ConfigTable.has(mode, id))
+                array.put(JsonUtils.formatValue(configurable, ConfigTable.get(mode, id)));
+            else
+                array.put("");
+        }
+    }
+
+    private static int currentModeIndex() {
+        return Math.max(0, ConfigTable.modeIndex(OxConfig.modeSelector.getMode()));
+    }
+}
@@ -1,15 +1,31 @@
 package me.nabdev.oxconfig;
 
-import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.RobotBase;
@@ -80,36 +96,109 @@ public class OxConfig {
         Never,
     }
 
+    /**
+     * Different modes for running setters
+     */
+    public enum SetterMode {
+        /**
+         * Setters run on the OxConfig thread one after another, default
+         */
+        Handler,
+        /**
+         * Setters run on a separate pool of threads.
+         * Setters of the same ConfigurableClass still run one at a time in order,
+         * but different classes run in parallel, so one slow class doesn't hold
+         * up the rest.
+         */
+        Executor,
+    }
+
     /* Config Mapping Declarations */
-    static JSONObject config;
-    static String configString;
     private static final Map<String, Configurable<?>> configValues = new ConcurrentHashMap<>();
     private static final Map<String, ConfigurableClass> configurableClasses = new ConcurrentHashMap<>();
     private static final Map<String, ConfigurableParameter<?>> configurableParameters = new ConcurrentHashMap<>();
+    private static final Map<String, ConfigurableClassSnapshot> classSnapshots = new ConcurrentHashMap<>();
+    // Keys whose setter has been called at least once, these always get their
+    // first value applied regardless of whether it matches the default
+    private static final Set<String> appliedKeys = ConcurrentHashMap.newKeySet();
+    // Keys registered after initialization, applied in one batch by the handler
+    // thread
+    private static final Queue<String> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    // Keys registered but not yet added to the ConfigTable, which only the
+    // handler thread writes to
+    private static final Queue<Map.Entry<String, Configurable<?>>> unregisteredKeys = new ConcurrentLinkedQueue<>();
+    // Commands for the handler thread (NT edits, mode switches, reloads), filled
+    // by NT listeners and the robot thread. Lock free, so the robot thread never
+    // waits on the handler, and bounded by queuedCommands, so a client flooding
+    // the Commands topic can't use up the robot's memory.
+    private static final Queue<Runnable> commandQueue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger queuedCommands = new AtomicInteger();
+    static final int commandQueueCapacity = 1024;
+    // The thread every change to the config runs on, null until initialize()
+    private static volatile Thread handlerThread = null;
+    // Ids of recently applied NT commands, so retried commands aren't applied
+    // twice. Only used on the handler thread.
+    private static final Map<Long, Boolean> handledCommandIds = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > 256;
+        }
+    };
 
     /**
      * The current modeSelector, used to determine which config values to use
      */
-    public static ModeSelector modeSelector;
+    public static volatile ModeSelector modeSelector;
 
-    /* Internal Declarations */
+    /*
+     * Internal Declarations. Apart from the volatile fields, these are only
+     * changed on the handler thread, or before initialize().
+     */
     private static boolean hasReadFromFile = false;
     // Set to true when OxConfig.initialize() is called
-    private static boolean initializedFromCode = false;
+    private static volatile boolean initializedFromCode = false;
     // Set to true when the config system has been fully initialized
     private static boolean shouldEnsure = true;
+    // Set when the config was loaded from a complete cache, so the next reload
+    // has nothing to ensure
+    private static boolean skipEnsureOnce = false;
     static boolean hasModified = false;
-    static boolean hasInitialized = false;
-    static boolean pendingNTUpdate = false;
+    static volatile boolean hasInitialized = false;
+    private static final AtomicBoolean pendingNTUpdate = new AtomicBoolean();
+    // Keys edited since the last NT update, sent as a delta instead of a full
+    // update
+    private static final Set<String> pendingDeltaKeys = ConcurrentHashMap.newKeySet();
+    // The mode whose values were last fully applied, and its ConfigTable version
+    // and the setter failure count at the time. While they still match, a mode
+    // switch only applies the keys that differ between the two modes.
+    private static String appliedMode = null;
+    private static long appliedVersion = -1;
+    private static long appliedFailures = -1;
+    private static final AtomicLong setterFailures = new AtomicLong();
+    // Set while reloadConfig() runs, see isReloading()
+    private static boolean reloading = false;
+
+    /* Setter Statistics */
+    private static final AtomicLong firedSetters = new AtomicLong();
+    private static final AtomicLong skippedSetters = new AtomicLong();
 
     /* Internal Parameter Declarations */
-    private static final String configPath = Filesystem.getDeployDirectory() + "/config.json";
-    private static final int threadSleepTime = 75;
+    // Resolved lazily, since finding the deploy directory requires the HAL
+    private static Path configPath = null;
+    private static ConfigFileWriter fileWriter = null;
+    // Flushes whichever writer is current when the JVM exits, added with the
+    // first writer
+    private static Thread shutdownHook = null;
+    private static Boolean isSimulation = null;
+    // The handler thread is woken up by commands, this is only a fallback
+    private static final int maxIdleTime = 1000;
     private static EditMode editMode = EditMode.Unrestricted;
     private static EnsureMode ensureMode = EnsureMode.Startup;
     static LoggingMode loggingMode = LoggingMode.Warnings;
     static boolean isProfiling = false;
     static boolean prettyPrintJSON = true;
+    private static boolean ntDeltaUpdates = true;
+    static double floatTolerance = 0;
 
     /**
      * Set the edit mode of OxConfig
@@ -122,10 +211,13 @@ public class OxConfig {
     }
 
     /**
-     * Enable sending profiling values in ms to NetworkTables
-     * (OxConfig/Profiling)
+     * Enable profiling. The time taken by each phase (file read, parse, ensure,
+     * apply, setters per class, file write, NT publish) is recorded into a
+     * histogram, and once per second its p50, p99, max and mean in ms and its
+     * count are sent to NetworkTables (OxConfig/Profiling/[phase]) or printed.
      * 
-     * @param nt Whether to send profiling values to NetworkTables
+     * @param nt Whether to send profiling values to NetworkTables instead of
+     *           printing them
      */
     public static void enableProfiling(boolean nt) {
         isProfiling = true;
@@ -142,6 +234,201 @@ public class OxConfig {
         prettyPrintJSON = false;
     }
 
+    /**
+     * Set the tolerance used when comparing floating point values on reload. If
+     * the new value is within this tolerance of the current value, the setter
+     * will not be called. Defaults to 0 (only exactly equal values are skipped).
+     * 
+     * @param tolerance The maximum difference for two values to be considered
+     *                  equal
+     */
+    public static void setFloatTolerance(double tolerance) {
+        if (tolerance < 0)
+            throw new IllegalArgumentException("Float tolerance must not be negative: " + tolerance);
+        floatTolerance = tolerance;
+    }
+
+    /**
+     * Gets the number of setters that have been called because their value
+     * changed since startup (or the last call to resetSetterCounts())
+     * 
+     * @return The number of setters called
+     */
+    public static long getFiredSetterCount() {
+        return firedSetters.get();
+    }
+
+    /**
+     * Gets the number of setters that were skipped because their value did not
+     * change since startup (or the last call to resetSetterCounts())
+     * 
+     * @return The number of setters skipped
+     */
+    public static long getSkippedSetterCount() {
+        return skippedSetters.get();
+    }
+
+    /**
+     * Resets the fired and skipped setter counters back to 0
+     */
+    public static void resetSetterCounts() {
+        firedSetters.set(0);
+        skippedSetters.set(0);
+    }
+
+    /**
+     * Set where setters run. Call before OxConfig.initialize(). With
+     * SetterMode.Executor, use awaitApplied() if robot code needs to know when
+     * new values have been applied.
+     * 
+     * @param mode The new setter mode
+     */
+    public static void setSetterMode(SetterMode mode) {
+        SetterExecutor.setEnabled(mode == SetterMode.Executor);
+        Logger.logInfo("Setter mode set to " + mode.toString());
+    }
+
+    /**
+     * Enable applying ConfigurableClasses in parallel during bulk reloads (on
+     * startup, reloadFromDisk() and mode switches). Values are still read from
+     * the config on the OxConfig thread, and the setters of each class still run
+     * in order, but up to maxParallelism classes are applied at once. The reload
+     * waits for every setter before it finishes. When enabled, this also limits
+     * how many classes run at once with SetterMode.Executor. Disabled (1) by
+     * default.
+     * 
+     * @param maxParallelism The maximum number of classes applied at once, 1 to
+     *                       disable
+     */
+    public static void setParallelReload(int maxParallelism) {
+        if (maxParallelism < 1)
+            throw new IllegalArgumentException("Max parallelism must be at least 1: " + maxParallelism);
+        SetterExecutor.setMaxParallelism(maxParallelism > 1 ? maxParallelism : 0);
+        SetterExecutor.parallelBatches = maxParallelism > 1;
+        Logger.logInfo("Parallel reload set to " + maxParallelism + " classes at once");
+    }
+
+    /**
+     * Waits until every reload, mode change and registration requested before
+     * this call has been applied and all of their setters have finished. Must not
+     * be called from a setter or onParametersCommitted(), since it would wait for
+     * itself.
+     * 
+     * @param timeoutSeconds The maximum time to wait in seconds
+     * @return Whether everything was applied before the timeout
+     */
+    public static boolean awaitApplied(double timeoutSeconds) {
+        if (!initializedFromCode)
+            return true;
+        CountDownLatch latch = new CountDownLatch(1);
+        boolean queued = queueCommand(() -> {
+            applyPendingRegistrations();
+            SetterExecutor.runWhenIdle(latch::countDown);
+        });
+        if (!queued)
+            return false;
+        try {
+            return latch.await((long) (timeoutSeconds * 1000), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Set a time budget for setters. Any setter (or onParametersCommitted() of a
+     * configurable class) that takes longer logs a warning with its key. The
+     * slowest setters are also published under OxConfig/Profiling/SlowSetters and
+     * SlowClasses when profiling is enabled. Disabled (0) by default.
+     * 
+     * @param budgetMs The budget in milliseconds, or 0 to disable warnings
+     */
+    public static void setSetterBudget(double budgetMs) {
+        if (budgetMs < 0)
+            throw new IllegalArgumentException("Setter budget must not be negative: " + budgetMs);
+        SetterStats.budgetNanos = (long) (budgetMs * 1e6);
+    }
+
+    /**
+     * Clears the recorded setter times used for the slow setter table
+     */
+    public static void resetSetterTimes() {
+        SetterStats.reset();
+    }
+
+    /**
+     * Registers a codec used to store parameters of the given type in the config.
+     * Must be called before any parameters of that type are created.
+     * 
+     * @param <T>   The type of value
+     * @param type  The class of the type
+     * @param codec The codec to convert the type to and from JSON
+     */
+    public static <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+        ValueCodecs.register(type, codec);
+        Logger.logInfo("Registered codec for " + type.getName());
+    }
+
+    /**
+     * Set whether edits are sent over NetworkTables as deltas containing only the
+     * changed keys (on OxConfig/Delta), instead of resending every parameter,
+     * class and the raw config. Full updates are still sent on startup, when keys
+     * are added, and when a client requests a resync. Enabled by default. Clients
+     * that only read the Params, Classes and Raw topics still see every edit:
+     * until a client has sent a command on OxConfig/Commands since the last
+     * client connected, edits are sent as full updates instead. Disable it to
+     * always send full updates.
+     * 
+     * @param enabled Whether to send delta updates
+     */
+    public static void setNTDeltaUpdates(boolean enabled) {
+        ntDeltaUpdates = enabled;
+    }
+
+    /**
+     * Set how long OxConfig waits after a change before writing the config file.
+     * Any other changes made during this time are written out together, which
+     * avoids rewriting the whole file for every step while dragging a slider in
+     * the tuning GUI.
+     * 
+     * @param ms The time to wait in milliseconds, defaults to 250
+     */
+    public static void setWriteDebounce(long ms) {
+        if (ms < 0)
+            throw new IllegalArgumentException("Write debounce must not be negative: " + ms);
+        ConfigFileWriter.debounceMs = ms;
+    }
+
+    /**
+     * Set how many previous versions of the config file to keep (as
+     * config.json.bak1, config.json.bak2, ...). The config file is backed up the
+     * first time it is written after startup, so each backup holds the config of
+     * an earlier run. If the config file fails to parse, the newest valid backup
+     * is loaded instead.
+     * 
+     * @param count The number of backups to keep, defaults to 3
+     */
+    public static void setBackupCount(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Backup count must not be negative: " + count);
+        ConfigFileWriter.backupCount = count;
+    }
+
+    /**
+     * Set whether OxConfig keeps a binary cache of the config next to the config
+     * file (config.json.cache). On startup, if the config file hasn't changed
+     * since the cache was written, the cache is loaded instead of parsing the
+     * config file, and ensuring keys is skipped if none are missing. If the cache
+     * is outdated or corrupt, the config file is parsed as usual. Only used on the
+     * robot, not in simulation. Enabled by default, call before
+     * OxConfig.initialize().
+     * 
+     * @param enabled Whether to use the cache
+     */
+    public static void setStartupCache(boolean enabled) {
+        ConfigCache.enabled = enabled;
+    }
+
     /**
      * Change the default ensure behavoir of OxConfig. If you are running into
      * slowdowns or constant crashes due to missing keys, it may be worth trying
@@ -172,17 +459,28 @@ public class OxConfig {
     public static void initialize() {
         Thread name = new Thread(() -> {
             try {
+                handlerThread = Thread.currentThread();
                 initializedFromCode = true;
                 modeSelector = new ModeSelector();
                 if (editMode == EditMode.Unrestricted)
                     NT4Interface.initialize();
                 reload();
                 Logger.logInfo("OxConfig initialized successfully");
-                if (editMode != EditMode.Unrestricted)
-                    return;
                 while (!Thread.currentThread().isInterrupted()) {
-                    runNTInterface();
-                    Thread.sleep(threadSleepTime);
+                    if (commandQueue.isEmpty()) {
+                        // Woken by wakeHandler(), a wakeup that came first returns immediately
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(maxIdleTime));
+                    }
+                    runQueuedCommands();
+                    // A failure here must not stop the thread, or no command would ever
+                    // be applied again
+                    try {
+                        applyPendingRegistrations();
+                        publishNTUpdates();
+                        TaskTimer.flushIfDue();
+                    } catch (Exception e) {
+                        Logger.logError("Failed to publish config updates: " + e.getMessage());
+                    }
                 }
             } catch (Exception e) {
                 Logger.logError("OxConfig ran into an issue, please report this to nab138: " + e.getMessage());
@@ -223,19 +521,23 @@ public class OxConfig {
     public static void reload() {
         if (!initializedFromCode)
             return;
+        if (!isHandlerThread()) {
+            queueCommand(OxConfig::reload);
+            return;
+        }
         TaskTimer timer = new TaskTimer();
         if (!hasReadFromFile) {
             reloadFromFile();
             hasReadFromFile = true;
+            timer.logTime("ReloadFile");
         }
-        timer.logTime("ReloadFile");
         reloadConfig();
         timer.logTime("ReloadConfig");
+        ConfigTable.commit();
         if (hasModified) {
             writeFiles();
             hasModified = false;
         }
-        timer.logTime("WriteFile");
         hasInitialized = true;
         if (ensureMode == EnsureMode.Startup)
             shouldEnsure = false;
@@ -250,35 +552,51 @@ public class OxConfig {
             Logger.logWarning("Attempted to reload config from disk while in locked mode, ignoring");
             return;
         }
+        if (initializedFromCode && !isHandlerThread()) {
+            queueCommand(OxConfig::reloadFromDisk);
+            return;
+        }
         Logger.logInfo("Reloading config from disk");
         TaskTimer timer = new TaskTimer();
         reloadFromFile();
         timer.logTime("ReloadFile");
         reloadConfig();
         timer.logTime("ReloadConfig");
+        ConfigTable.commit();
         if (hasModified) {
             writeFiles();
             hasModified = false;
         }
-        timer.logTime("WriteFile");
         hasInitialized = true;
     }
 
     /**
      * Missing config keys will be added to the config file automatically,
-     * this function will write out those autogenerated keys to a file
+     * this function will write out those autogenerated keys to a file.
+     * The write happens in the background after the write debounce (see
+     * setWriteDebounce()), use flushFiles() to write immediately.
      */
     public static void writeFiles() {
-        TaskTimer writeTimer = new TaskTimer();
-        JsonUtils.updateConfigStr();
-        try (FileWriter writer = new FileWriter(configPath)) {
-            writer.write(configString);
-            writeTimer.logTime("PrintConfig");
-            Logger.logInfo("Wrote out config file successfully");
-        } catch (Exception e) {
-            Logger.logError(
-                    "Failed to write out config file (you may need to change file permissions): " + e.getMessage());
-        }
+        commitIfOwner();
+        getFileWriter().requestWrite();
+    }
+
+    /**
+     * Immediately writes out any pending changes to the config file on the
+     * calling thread, instead of waiting for the write debounce
+     */
+    public static void flushFiles() {
+        commitIfOwner();
+        getFileWriter().flush();
+    }
+
+    /**
+     * The config file is written from the last commit. Only the thread that
+     * changes the config commits, other threads write what it committed last.
+     */
+    private static void commitIfOwner() {
+        if (!initializedFromCode || isHandlerThread())
+            ConfigTable.commit();
     }
 
     /**
@@ -291,10 +609,67 @@ public class OxConfig {
      */
     public static void registerConfigurableClass(ConfigurableClass configurableClass) {
         configurableClasses.put(configurableClass.getKey(), configurableClass);
+        classSnapshots.put(configurableClass.getKey(), ConfigurableClassSnapshot.capture(configurableClass));
         List<ConfigurableClassParam<?>> parameters = configurableClass.getParameters();
-        parameters.forEach(parameter -> registerClassParameter(
-                parameter.getKey(),
-                parameter));
+        for (ConfigurableClassParam<?> parameter : parameters) {
+            queueRegistration(parameter.getKey(), parameter);
+        }
+        // Wake the handler once so all parameters of the class are applied together
+        wakeHandler();
+    }
+
+    /**
+     * Gets the latest snapshot of a configurable class's parameters. All values in
+     * a snapshot come from the same reload, so read every value you need for a
+     * calculation from one snapshot instead of from the parameters directly. A new
+     * snapshot is published after each reload that changes the class, before
+     * onParametersCommitted() is called.
+     * 
+     * @param configurableClass The registered class to get the snapshot of
+     * @return The latest snapshot of the class
+     */
+    public static ConfigurableClassSnapshot getSnapshot(ConfigurableClass configurableClass) {
+        ConfigurableClassSnapshot snapshot = classSnapshots.get(configurableClass.getKey());
+        if (snapshot == null)
+            return ConfigurableClassSnapshot.capture(configurableClass);
+        return snapshot;
+    }
+
+    /**
+     * Starts a transaction, which sets any number of keys in any modes and applies
+     * them all at once, with a single batch of setters, file write and NT update,
+     * when committed. See ConfigTransaction.
+     * 
+     * @return The new transaction
+     */
+    public static ConfigTransaction beginTransaction() {
+        return new ConfigTransaction();
+    }
+
+    /**
+     * Undoes the last change to the config (an NT edit, a transaction, a copy
+     * between modes or a reload from disk) and applies the restored values.
+     * Calling it again undoes the change before that, up to the last 32 changes.
+     */
+    public static void undo() {
+        if (editMode == EditMode.Locked) {
+            Logger.logWarning("Attempted to undo a config change while in locked mode, ignoring");
+            return;
+        }
+        queueCommand(() -> {
+            if (!undoLastChange())
+                Logger.logWarning("No config change to undo");
+        });
+    }
+
+    /**
+     * Gets the version of the config, which changes every time a change to it is
+     * done. Never waits on the OxConfig thread, so it can be checked every loop.
+     *
+     * @return The version, or -1 if the config hasn't been loaded yet
+     */
+    public static long getConfigVersion() {
+        return ConfigTable.latestVersion();
     }
 
     /**
@@ -307,15 +682,9 @@ public class OxConfig {
      * @param parameter the parameter to update
      */
     public static void registerParameter(String key, ConfigurableParameter<?> parameter) {
-        configValues.put(key, parameter);
         configurableParameters.put(key, parameter);
-        if (hasInitialized) {
-            shouldEnsure = ensureMode == EnsureMode.Never ? false : true;
-            reload();
-            synchronized (OxConfig.class) {
-                pendingNTUpdate = true;
-            }
-        }
+        queueRegistration(key, parameter);
+        wakeHandler();
     }
 
     /**
@@ -328,265 +697,1214 @@ public class OxConfig {
      * @param parameter the parameter to update
      */
     public static void registerClassParameter(String key, ConfigurableClassParam<?> parameter) {
-        configValues.put(key, parameter);
-        if (hasInitialized) {
-            shouldEnsure = ensureMode == EnsureMode.Never ? false : true;
-            reload();
-            synchronized (OxConfig.class) {
-                pendingNTUpdate = true;
-            }
+        queueRegistration(key, parameter);
+        wakeHandler();
+    }
+
+    private static void queueRegistration(String key, Configurable<?> configurable) {
+        // Queued before it is visible in configValues, so anything that finds it
+        // there can register it with registerPendingKeys()
+        unregisteredKeys.add(new AbstractMap.SimpleImmutableEntry<>(key, configurable));
+        configValues.put(key, configurable);
+        // Registrations made before the config is first loaded are applied by that
+        // load
+        if (initializedFromCode || hasInitialized)
+            pendingRegistrations.add(key);
+    }
+
+    /**
+     * Adds every key registered so far to the ConfigTable. Registration only
+     * queues keys, so the ConfigTable is only written to by the handler thread.
+     */
+    static void registerPendingKeys() {
+        Map.Entry<String, Configurable<?>> entry;
+        while ((entry = unregisteredKeys.poll()) != null) {
+            // The mode is stored at the root of the config, not per mode
+            if (!entry.getKey().equalsIgnoreCase("root/mode"))
+                ConfigTable.register(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets a registered configurable
+     * 
+     * @param key The key of the configurable
+     * @return The configurable, or null if no configurable has that key
+     */
+    static Configurable<?> getConfigurable(String key) {
+        return configValues.get(key);
+    }
+
+    /**
+     * Ensures and applies every key registered since the last call, then
+     * schedules a single file write and NT update for all of them. Only the newly
+     * registered keys are touched, instead of reloading the whole config for
+     * every registration.
+     */
+    static void applyPendingRegistrations() {
+        registerPendingKeys();
+        if (pendingRegistrations.isEmpty())
+            return;
+        TaskTimer timer = new TaskTimer();
+        boolean ensure = ensureMode != EnsureMode.Never;
+        Set<String> keys = new LinkedHashSet<>();
+        String key;
+        while ((key = pendingRegistrations.poll()) != null) {
+            keys.add(key);
+        }
+        Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+        for (String pendingKey : keys) {
+            updateSingleKey(pendingKey, ensure, changed);
+        }
+        commitClasses(changed);
+        timer.logTime("ApplyRegistrations");
+        if (hasModified) {
+            writeFiles();
+            hasModified = false;
+        }
+        timer.logTime("WriteFile");
+        requestNTUpdate();
+        Logger.logInfo("Applied " + keys.size() + " newly registered keys");
+    }
+
+    private static synchronized Path getConfigPath() {
+        if (configPath == null)
+            configPath = Paths.get(Filesystem.getDeployDirectory().getPath(), "config.json");
+        return configPath;
+    }
+
+    private static synchronized ConfigFileWriter getFileWriter() {
+        if (fileWriter == null)
+            fileWriter = new ConfigFileWriter(getConfigPath());
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(OxConfig::flushOnExit);
+            shutdownHook.setName("OxConfig Shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
         }
+        return fileWriter;
+    }
+
+    /**
+     * Writes out the last committed changes when the JVM exits
+     */
+    private static void flushOnExit() {
+        ConfigFileWriter writer;
+        synchronized (OxConfig.class) {
+            writer = fileWriter;
+        }
+        if (writer != null)
+            writer.flush();
+    }
+
+    /**
+     * Whether the robot is running in simulation, cached since it requires the
+     * HAL
+     */
+    static boolean isSimulation() {
+        if (isSimulation == null)
+            isSimulation = RobotBase.isSimulation();
+        return isSimulation;
+    }
+
+    /**
+     * Forgets every registered parameter and class, queued command and loaded
+     * value, so each test starts from the state OxConfig is in before any
+     * parameter is created. Settings such as the config path are kept.
+     * 
+     * @throws IllegalStateException If OxConfig was initialized, since the
+     *                               handler thread would keep running
+     */
+    static synchronized void reset() {
+        if (initializedFromCode)
+            throw new IllegalStateException("Can't reset OxConfig after it is initialized");
+        configValues.clear();
+        configurableClasses.clear();
+        configurableParameters.clear();
+        classSnapshots.clear();
+        appliedKeys.clear();
+        pendingRegistrations.clear();
+        unregisteredKeys.clear();
+        commandQueue.clear();
+        queuedCommands.set(0);
+        handledCommandIds.clear();
+        pendingNTUpdate.set(false);
+        pendingDeltaKeys.clear();
+        appliedMode = null;
+        appliedVersion = -1;
+        appliedFailures = -1;
+        setterFailures.set(0);
+        firedSetters.set(0);
+        skippedSetters.set(0);
+        SetterStats.reset();
+        hasReadFromFile = false;
+        shouldEnsure = true;
+        skipEnsureOnce = false;
+        hasModified = false;
+        hasInitialized = false;
+        modeSelector = null;
+        ModeSelector.modes = ModeSelector.defaultModes.clone();
+        ConfigTable.reset();
+    }
+
+    /**
+     * Reads and writes the config at a path instead of the deploy directory,
+     * which can only be found with the HAL. Lets the tests and benchmarks run
+     * without a robot. Any changes pending for the old path are still written
+     * there.
+     * 
+     * @param path The path of the config file
+     */
+    static synchronized void setConfigPath(Path path) {
+        configPath = path;
+        if (fileWriter != null)
+            fileWriter.close();
+        fileWriter = null;
+    }
+
+    /**
+     * Sets whether the robot is treated as simulated, instead of asking the HAL.
+     * Lets the tests and benchmarks run without a robot.
+     * 
+     * @param simulation Whether the robot is simulated
+     */
+    static void setSimulation(boolean simulation) {
+        isSimulation = simulation;
     }
 
     private static void reloadFromFile() {
         try {
-            // Load config json object from configPath
-            FileInputStream input = new FileInputStream(configPath);
-            JSONTokener tokener = new JSONTokener(input);
-            config = new JSONObject(tokener);
-            JsonUtils.dirty = true;
-            pendingNTUpdate = true;
+            loadConfig(getConfigPath(), useStartupCache());
+            requestNTUpdate();
             Logger.logInfo("Reloaded config from file");
+            return;
         } catch (Exception e) {
             Logger.logError("Failed to read config file (ensure it exists in deploy folder under config.json): "
                     + e.getMessage());
         }
+        // Fall back to the newest backup that parses
+        for (Path backup : getFileWriter().getBackupPaths()) {
+            if (!Files.exists(backup))
+                continue;
+            try {
+                loadConfig(backup, false);
+                // Write the recovered config back out over the broken one
+                hasModified = true;
+                requestNTUpdate();
+                Logger.logWarning("Recovered config from backup " + backup.getFileName());
+                return;
+            } catch (Exception e) {
+                Logger.logError("Failed to read config backup " + backup.getFileName() + ": " + e.getMessage());
+            }
+        }
     }
 
-    private static void reloadConfig() {
+    /**
+     * Loads a config file, from its ConfigCache if the cache matches it
+     * 
+     * @param path     The path of the config file
+     * @param useCache Whether to read and write the cache
+     * @throws Exception If the file can't be read or parsed
+     */
+    private static void loadConfig(Path path, boolean useCache) throws Exception {
+        // Registered keys are read straight into the table instead of being kept
+        // as unknown keys
+        registerPendingKeys();
         TaskTimer timer = new TaskTimer();
-        for (String key : configValues.keySet()) {
-            updateSingleKey(key);
-            timer.logTime("ReloadSingleKey");
+        byte[] content = Files.readAllBytes(path);
+        timer.logTime("ReadFile");
+        if (!useCache) {
+            ConfigTable.load(new String(content, StandardCharsets.UTF_8), activeModeHint());
+            timer.logTime("ParseFile");
+            return;
+        }
+        long hash = ConfigCache.hash(content, content.length);
+        if (ConfigCache.load(ConfigCache.pathFor(path), hash)) {
+            timer.logTime("LoadCache");
+            // The cache is written after ensuring, so there is usually nothing to ensure
+            skipEnsureOnce = ConfigTable.isComplete();
+            Logger.logInfo("Loaded config from cache");
+            return;
         }
+        ConfigTable.load(new String(content, StandardCharsets.UTF_8), activeModeHint());
+        timer.logTime("ParseFile");
+        getFileWriter().requestCacheWrite(hash);
     }
 
-    private static void updateSingleKey(String key) {
-        Configurable<?> configurable = configValues.get(key);
-        String defaultVal = configurable.get().toString();
+    /**
+     * Gets the mode to parse when loading a config, the others are parsed when
+     * they are first used. The root mode key of the config is used instead if it
+     * comes before the modes.
+     * 
+     * @return The mode expected to be active
+     */
+    private static String activeModeHint() {
+        if (isSimulation())
+            return "simulation";
+        return modeSelector == null ? null : modeSelector.getTargetMode();
+    }
+
+    /**
+     * Whether the ConfigCache is used, see setStartupCache(). Never in
+     * simulation, where parsing is fast and memory mapped files can't be
+     * replaced on Windows.
+     */
+    static boolean useStartupCache() {
+        return ConfigCache.enabled && !isSimulation();
+    }
+
+    static void reloadConfig() {
+        registerPendingKeys();
+        TaskTimer timer = new TaskTimer();
+        Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+        boolean ensure = shouldEnsure && !skipEnsureOnce;
+        skipEnsureOnce = false;
+        long failures = setterFailures.get();
+        String target;
+        reloading = true;
+        try {
+            // The mode goes first, since every other key is read from it. Its setter
+            // runs right away, and only changes the target mode.
+            if (configValues.containsKey("root/mode"))
+                updateSingleKey("root/mode", changed);
+            target = modeSelector.getTargetMode();
+        } finally {
+            reloading = false;
+        }
+        // Values are read and ensured on this thread, setters may run in parallel
+        SetterExecutor.runBatch(() -> {
+            int mode = ConfigTable.modeIndex(target);
+            int[] switched = ensure ? null : switchedIds(target);
+            updateKeys(switched, mode, ensure, changed);
+            if (switched != null)
+                TaskTimer.logCount("SwitchedKeys", switched.length);
+            commitClasses(changed);
+        });
+        // Setters that fail later (on the executor) change the failure count, so the
+        // next switch applies every key again
+        appliedMode = target;
+        appliedVersion = ConfigTable.version(ConfigTable.modeIndex(appliedMode));
+        appliedFailures = failures;
+        modeSelector.applied(target);
+        timer.logTime("ApplyAll");
+        TaskTimer.logCount("FiredSetters", firedSetters.get());
+        TaskTimer.logCount("SkippedSetters", skippedSetters.get());
+    }
 
+    /**
+     * Checks if every value of a mode is applied, as of its current ConfigTable
+     * version
+     * 
+     * @param mode The mode
+     * @return Whether the mode was the last one applied and hasn't changed since
+     */
+    private static boolean isApplied(String mode) {
+        if (!mode.equals(appliedMode) || setterFailures.get() != appliedFailures)
+            return false;
+        int index = ConfigTable.modeIndex(mode);
+        return index >= 0 && ConfigTable.version(index) == appliedVersion;
+    }
+
+    /**
+     * Gets the keys to apply when switching to a mode, if only the keys whose
+     * values differ from the applied mode need to be applied. That is the case if
+     * every key of the applied mode was applied, and none of its values changed
+     * since. Reloading the applied mode then applies nothing.
+     * 
+     * @param mode The mode being switched to
+     * @return The ids of the keys to apply, or null to apply every key
+     */
+    private static int[] switchedIds(String mode) {
+        if (appliedMode == null || !pendingRegistrations.isEmpty() || !isApplied(appliedMode))
+            return null;
+        return ConfigTable.changedIds(ConfigTable.modeIndex(appliedMode), ConfigTable.modeIndex(mode));
+    }
+
+    /**
+     * Updates a single key from the config, and if it belongs to a configurable
+     * class and changed, records it to be committed later with commitClasses()
+     * 
+     * @param key     The key to update
+     * @param changed The changed parameters of each configurable class
+     */
+    private static void updateSingleKey(String key, Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed) {
+        updateSingleKey(key, shouldEnsure, changed);
+    }
+
+    /**
+     * Updates a single key from the config, calling its setter only if the value
+     * changed. The value is read from the config on the calling thread, and the
+     * setter is run by the SetterExecutor. If the key belongs to a configurable
+     * class and its setter is called, it is recorded to be committed later with
+     * commitClasses().
+     * 
+     * @param key     The key to update
+     * @param ensure  Whether to make sure the key exists in every mode
+     * @param changed The changed parameters of each configurable class
+     */
+    private static void updateSingleKey(String key, boolean ensure,
+            Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed) {
         if (key.equalsIgnoreCase("root/mode")) {
-            if (shouldEnsure)
-                JsonUtils.ensureModeExists(defaultVal);
+            Configurable<?> configurable = configValues.get(key);
+            if (ensure)
+                JsonUtils.ensureModeExists(String.valueOf(configurable.get()));
             // Don't write out simulation to config file when running in sim to avoid
             // accidentally overwriting data
-            if (!(RobotBase.isSimulation() && modeSelector.getMode().equals("simulation"))) {
-                setValue(configurable, "mode", config);
+            if (!(isSimulation() && modeSelector.getTargetMode().equals("simulation"))) {
+                String raw = ConfigTable.getRootMode();
+                // The mode is applied immediately, since every other key is read from it
+                if (raw != null)
+                    setValue(configurable, key, raw);
+                else
+                    Logger.logError("Failed to set value for key" + key + ": the config has no mode");
             }
+            return;
+        }
+        int id = ConfigTable.idOf(key);
+        if (id < 0)
+            return;
+        updateKeys(new int[] { id }, ConfigTable.modeIndex(modeSelector.getMode()), ensure, changed);
+    }
+
+    /**
+     * Updates keys from the config by their ids in the ConfigTable. Every value
+     * is read (and ensured) in one pass over the table, then the setters are
+     * submitted.
+     * 
+     * @param ids     The ids of the keys to update, or null to update every key
+     * @param mode    The index of the current mode
+     * @param ensure  Whether to make sure the keys exist in every mode
+     * @param changed The changed parameters of each configurable class
+     */
+    private static void updateKeys(int[] ids, int mode, boolean ensure,
+            Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed) {
+        TaskTimer timer = new TaskTimer();
+        Function<Configurable<?>, Object> defaults = ensure ? OxConfig::getDefaultJson : null;
+        ConfigTable.Batch batch = ConfigTable.getAll(mode, ids, defaults);
+        if (batch.ensured) {
+            hasModified = true;
+            // New keys change the structure, so they need a full update
+            requestNTUpdate();
+        }
+        timer.logTime(ensure ? "Ensure" : "Read");
+        for (int i = 0; i < batch.keys.length; i++) {
+            updateKey(batch.keys[i], batch.configurables[i], batch.values[i], changed);
+        }
+        timer.logTime("Apply");
+    }
+
+    /**
+     * Submits the setter of a key
+     * 
+     * @param key          The key
+     * @param configurable The configurable of the key
+     * @param raw          The value of the key in the current mode, or null if it
+     *                     has none
+     * @param changed      The changed parameters of each configurable class
+     */
+    private static void updateKey(String key, Configurable<?> configurable, Object raw,
+            Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed) {
+        if (raw == null) {
+            Logger.logError("Failed to set value for key" + key + ": it has no value in the current mode");
+            return;
+        }
+        if (configurable instanceof ConfigurableClassParam) {
+            ConfigurableClassParam<?> param = (ConfigurableClassParam<?>) configurable;
+            ConfigurableClass configurableClass = param.getConfigurableClass();
+            // Only touched by tasks of this class, which the executor runs in order
+            Set<ConfigurableClassParam<?>> classChanged = changed.computeIfAbsent(configurableClass,
+                    c -> new LinkedHashSet<>());
+            SetterExecutor.submit(configurableClass.getKey(), () -> {
+                if (setValue(configurable, key, raw))
+                    classChanged.add(param);
+            });
         } else {
-            if (shouldEnsure) {
-                for (String mode : ModeSelector.modes) {
-                    JsonUtils.ensureExists(mode, key, defaultVal, configurable.shouldStoreComment());
-                }
-            }
-            setValue(configurable, key, JsonUtils.getModeMap(modeSelector.getMode()));
+            SetterExecutor.submit(key, () -> setValue(configurable, key, raw));
+        }
+    }
+
+    /**
+     * Notifies each configurable class that its parameters have been updated.
+     * The commit of each class runs on the SetterExecutor after all of its
+     * setters, and is skipped if none of them were called.
+     * 
+     * @param changed The changed parameters of each configurable class
+     */
+    private static void commitClasses(Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed) {
+        for (Map.Entry<ConfigurableClass, Set<ConfigurableClassParam<?>>> entry : changed.entrySet()) {
+            ConfigurableClass configurableClass = entry.getKey();
+            Set<ConfigurableClassParam<?>> params = entry.getValue();
+            SetterExecutor.submit(configurableClass.getKey(), () -> commitClass(configurableClass, params));
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private static void setValue(Configurable<?> obj, String key, JSONObject map) {
-        Object value = obj.get();
-        String val = JsonUtils.getRealValue(map, key, obj.shouldStoreComment());
+    private static void commitClass(ConfigurableClass configurableClass, Set<ConfigurableClassParam<?>> changed) {
+        if (changed.isEmpty())
+            return;
+        long start = System.nanoTime();
         try {
-            switch (value.getClass().getSimpleName()) {
-                case "Double":
-                    ((Configurable<Double>) obj).set(Double.valueOf(val));
-                    break;
-                case "Float":
-                    ((Configurable<Float>) obj).set(Float.valueOf(val));
-                    break;
-                case "Integer":
-                    ((Configurable<Integer>) obj).set(Integer.valueOf(val));
-                    break;
-                case "Boolean":
-                    ((Configurable<Boolean>) obj).set(Boolean.valueOf(val));
-                    break;
-                case "String":
-                    ((Configurable<String>) obj).set(String.valueOf(val));
-                    break;
-                case "Short":
-                    ((Configurable<Short>) obj).set(Short.valueOf(val));
-                    break;
-                case "Long":
-                    ((Configurable<Long>) obj).set(Long.valueOf(val));
-                    break;
-                default:
-                    Logger.logWarning("Unknown Type for key " + key + ": " + value.getClass().getName());
-                    break;
-            }
+            configurableClass.onParametersCommitted(Collections.unmodifiableSet(changed));
+            long elapsed = System.nanoTime() - start;
+            SetterStats.recordCommit(configurableClass.getKey(), elapsed);
+            if (isProfiling)
+                TaskTimer.record("Commit/" + configurableClass.getKey(), elapsed);
+            // Only a committed set of values is one the class can be restored to
+            classSnapshots.put(configurableClass.getKey(), ConfigurableClassSnapshot.capture(configurableClass));
+        } catch (Throwable e) {
+            // Errors too, like setters, so one bad class can't stop the rest
+            setterFailures.incrementAndGet();
+            Logger.logError("Failed to commit parameters for class " + configurableClass.getKey() + ": " + e);
+        }
+    }
+
+    /**
+     * Calls the setter of a configurable with a value read from the config, if it
+     * differs from the current value (or if the setter has never been called)
+     * 
+     * @param obj The configurable to set
+     * @param key The registered key of the configurable
+     * @param raw The value as stored in the config
+     * @return Whether the setter was called
+     */
+    private static <T> boolean setValue(Configurable<T> obj, String key, Object raw) {
+        try {
+            // Primitive parameters are read and set without boxing
+            if (obj instanceof DoubleConfigurable)
+                return setDoubleValue((DoubleConfigurable) obj, key, raw);
+            if (obj instanceof IntConfigurable)
+                return setIntValue((IntConfigurable) obj, key, raw);
+            if (obj instanceof BooleanConfigurable)
+                return setBooleanValue((BooleanConfigurable) obj, key, raw);
+            ValueCodec<T> codec = obj.getCodec();
+            T newValue = codec.fromJson(raw);
+            if (shouldSkip(key, codec.isEqual(obj.get(), newValue)))
+                return false;
+            long start = System.nanoTime();
+            obj.set(newValue);
+            recordSetterTime(obj, key, start);
+            markApplied(key);
+            return true;
         } catch (Exception e) {
+            setterFailures.incrementAndGet();
             Logger.logError("Failed to set value for key" + key + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean setDoubleValue(DoubleConfigurable obj, String key, Object raw) {
+        double newValue = ValueCodecs.decodeDouble(raw);
+        if (shouldSkip(key, ValueCodecs.doublesEqual(obj.getAsDouble(), newValue)))
+            return false;
+        long start = System.nanoTime();
+        obj.setDouble(newValue);
+        recordSetterTime(obj, key, start);
+        markApplied(key);
+        return true;
+    }
+
+    private static boolean setIntValue(IntConfigurable obj, String key, Object raw) {
+        int newValue = ValueCodecs.decodeInt(raw);
+        if (shouldSkip(key, obj.getAsInt() == newValue))
+            return false;
+        long start = System.nanoTime();
+        obj.setInt(newValue);
+        recordSetterTime(obj, key, start);
+        markApplied(key);
+        return true;
+    }
+
+    private static boolean setBooleanValue(BooleanConfigurable obj, String key, Object raw) {
+        boolean newValue = ValueCodecs.decodeBoolean(raw);
+        if (shouldSkip(key, obj.getAsBoolean() == newValue))
+            return false;
+        long start = System.nanoTime();
+        obj.setBoolean(newValue);
+        recordSetterTime(obj, key, start);
+        markApplied(key);
+        return true;
+    }
+
+    /**
+     * Checks if the setter for a key should be skipped, counting it if so
+     * 
+     * @param key   The key being set
+     * @param equal Whether the new value equals the current value
+     * @return Whether to skip the setter
+     */
+    private static boolean shouldSkip(String key, boolean equal) {
+        if (equal && appliedKeys.contains(key)) {
+            skippedSetters.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records how long a setter took, for the slow setter table and the profiling
+     * histogram of the class it belongs to
+     * 
+     * @param obj   The configurable whose setter was called
+     * @param key   The key of the configurable
+     * @param start When the setter was called, from System.nanoTime()
+     */
+    private static void recordSetterTime(Object obj, String key, long start) {
+        long elapsed = System.nanoTime() - start;
+        String classKey = null;
+        if (obj instanceof ConfigurableClassParam)
+            classKey = ((ConfigurableClassParam<?>) obj).getConfigurableClass().getKey();
+        SetterStats.recordSetter(key, classKey, elapsed);
+        if (isProfiling)
+            TaskTimer.record(classKey == null ? "Setter/Parameters" : "Setter/" + classKey, elapsed);
+    }
+
+    private static void markApplied(String key) {
+        appliedKeys.add(key);
+        firedSetters.incrementAndGet();
+    }
+
+    /**
+     * Gets the current value of a configurable as its JSON representation, used
+     * as the default when a key is missing from the config
+     */
+    private static <T> Object getDefaultJson(Configurable<T> configurable) {
+        return configurable.getCodec().toJson(configurable.get());
+    }
+
+    /**
+     * Parses text received over NT into the JSON representation of a
+     * configurable's type
+     * 
+     * @param configurable The configurable the text is for
+     * @param text         The text received over NT
+     * @return The JSON value to store
+     */
+    private static <T> Object parseToJson(Configurable<T> configurable, String text) {
+        ValueCodec<T> codec = configurable.getCodec();
+        return codec.toJson(codec.parse(text));
+    }
+
+    /**
+     * Queues a command to be run on the handler thread, used by the NT listeners.
+     * If the queue is full the command is dropped. Dropped messages from the
+     * Commands topic are never acknowledged, so the client retries them.
+     * 
+     * @param command The command to run
+     * @return Whether the command was queued
+     */
+    static boolean queueCommand(Runnable command) {
+        if (queuedCommands.incrementAndGet() > commandQueueCapacity) {
+            queuedCommands.decrementAndGet();
+            Logger.logError("OxConfig command queue is full, dropping command");
+            return false;
+        }
+        commandQueue.add(command);
+        wakeHandler();
+        return true;
+    }
+
+    /**
+     * Runs every queued command on the calling thread, in the order they were
+     * queued
+     * 
+     * @return How many commands were run
+     */
+    static int runQueuedCommands() {
+        int count = 0;
+        Runnable command;
+        while ((command = pollCommand()) != null) {
+            runCommand(command);
+            count++;
+        }
+        return count;
+    }
+
+    private static Runnable pollCommand() {
+        Runnable command = commandQueue.poll();
+        if (command != null)
+            queuedCommands.decrementAndGet();
+        return command;
+    }
+
+    /**
+     * Wakes the handler thread so it processes pending registrations and NT
+     * updates without waiting
+     */
+    static void wakeHandler() {
+        Thread thread = handlerThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Checks if the calling thread is the handler thread, which every change to
+     * the config runs on once OxConfig is initialized
+     * 
+     * @return Whether this is the handler thread
+     */
+    static boolean isHandlerThread() {
+        return Thread.currentThread() == handlerThread;
+    }
+
+    /**
+     * Checks if the calling thread is applying the mode read from the config,
+     * at the start of reloadConfig(). A mode set from there is applied by that
+     * reload, so it doesn't queue another one.
+     * 
+     * @return Whether the calling thread is applying the mode of a reload
+     */
+    static boolean isReloading() {
+        return reloading && (isHandlerThread() || handlerThread == null);
+    }
+
+    /**
+     * Marks the NT interface as out of date and wakes the handler thread to
+     * publish it
+     */
+    static void requestNTUpdate() {
+        pendingNTUpdate.set(true);
+        wakeHandler();
+    }
+
+    /**
+     * Marks a key as edited so its new values are sent to NT clients, and wakes
+     * the handler thread to publish it
+     * 
+     * @param key The edited key
+     */
+    static void requestNTDelta(String key) {
+        if (!ntDeltaUpdates) {
+            requestNTUpdate();
+            return;
+        }
+        pendingDeltaKeys.add(key);
+        wakeHandler();
+    }
+
+    private static void runCommand(Runnable command) {
+        // Commands may refer to keys that were just registered
+        registerPendingKeys();
+        try {
+            command.run();
+        } catch (Exception e) {
+            Logger.logError("Failed to run command: " + e.getMessage());
         }
+        // Whatever the command changed becomes one version, and one undo step
+        ConfigTable.commit();
+        if (hasModified) {
+            writeFiles();
+            hasModified = false;
+        }
+    }
+
+    /**
+     * Whether edits over NT are currently allowed
+     */
+    private static boolean canEditFromNT() {
+        return NT4Interface.hasInitialized && editMode == EditMode.Unrestricted;
     }
 
     /**
-     * Reading/writing the config over NetworkTables, used for the tuning and config
-     * GUI's built in to our modified advantage scope.
+     * Sends the config over NetworkTables if it changed, used for the tuning and
+     * config GUI's built in to our modified advantage scope.
      */
-    private static void runNTInterface() {
-        if (!NT4Interface.hasInitialized)
+    private static void publishNTUpdates() {
+        // Keys are registered and changes committed whether or not anything is
+        // published, so the file writer and changedSince() always see them.
+        // Published payloads carry the version they are from.
+        registerPendingKeys();
+        ConfigTable.commit();
+        if (!canEditFromNT())
             return;
-        if (editMode != EditMode.Unrestricted)
+        // Publishing reads every mode, keep the updates pending until someone is
+        // listening so deferred modes stay unparsed
+        if (!NT4Interface.hasClients())
             return;
         TaskTimer timer = new TaskTimer();
-        handleKeySetter();
-        handleCopyAll();
-        boolean shouldUpdate = false;
-        synchronized (OxConfig.class) {
-            shouldUpdate = pendingNTUpdate;
-            if (shouldUpdate) {
-                pendingNTUpdate = false;
-            }
-        }
-        if (shouldUpdate) {
+        // Clients that don't read deltas get a full update instead
+        if (!pendingDeltaKeys.isEmpty() && !NT4Interface.clientsUseDeltas())
+            pendingNTUpdate.set(true);
+        if (pendingNTUpdate.getAndSet(false)) {
+            // The full update includes every pending delta
+            pendingDeltaKeys.clear();
             NT4Interface.updateClasses(configurableClasses);
             timer.logTime("NT Update Classes");
             NT4Interface.updateParameters(configurableParameters);
             timer.logTime("NT Update Parameters");
-            NT4Interface.updateMode();
-            timer.logTime("NT Update Mode");
-            JsonUtils.updateConfigStr();
-            NT4Interface.updateRaw(configString);
+            NT4Interface.updateRaw();
             timer.logTime("NT Update Raw");
+            NT4Interface.publishFullSync();
+        } else if (!pendingDeltaKeys.isEmpty()) {
+            List<String> keys = new ArrayList<>(pendingDeltaKeys);
+            pendingDeltaKeys.removeAll(keys);
+            NT4Interface.publishDelta(keys, configValues);
+            timer.logTime("NT Update Delta");
         }
+        NT4Interface.updateMode();
+        timer.logTime("NT Update Mode");
     }
 
-    private static void handleCopyAll() {
-        String copyAll = NT4Interface.getCopyAll();
-        if (!copyAll.isEmpty()) {
-            String[] copyAllSet = copyAll.split(",");
-            String sourceMode = copyAllSet[0];
-            String destMode = copyAllSet[1];
-            Logger.logInfo("Received NT update for copyAll " + sourceMode + " to " + destMode);
-            JSONObject source = JsonUtils.getModeMap(sourceMode);
-            for (String key : source.keySet()) {
-                Configurable<?> configurable = configValues.get(key);
-                if (configurable == null) {
-                    continue;
-                }
-                String sourceVal = JsonUtils.getRealValue(source, key, configurable.shouldStoreComment());
-                if (!configurable.shouldStoreComment()) {
-                    JsonUtils.modifyValue(destMode, key, sourceVal);
-                } else {
-                    JSONObject data = JsonUtils.getJSONObject(source, key);
-                    JsonUtils.modifyValue(destMode, key, sourceVal,
-                            data.has("comment") ? data.getString("comment") : "Auto-Generated");
-                }
+    /**
+     * Handle a CopyAll command received over NT
+     * 
+     * @param copyAll The source and destination mode, separated by a comma
+     */
+    static void handleCopyAll(String copyAll) {
+        if (!canEditFromNT())
+            return;
+        String[] copyAllSet = copyAll.split(",");
+        String sourceMode = copyAllSet[0];
+        String destMode = copyAllSet[1];
+        Logger.logInfo("Received NT update for copyAll " + sourceMode + " to " + destMode);
+        copyMode(sourceMode, destMode);
+    }
 
-                updateSingleKey(key);
+    /**
+     * Copies every value (and comment) from one mode to another
+     * 
+     * @param sourceMode The mode to copy from
+     * @param destMode   The mode to copy to
+     */
+    private static void copyMode(String sourceMode, String destMode) {
+        copyKeys(sourceMode, destMode, null);
+    }
+
+    /**
+     * Copies the values (and comments) of some keys from one mode to another as
+     * one batch: a single pass over the ConfigTable, then the setters of only the
+     * keys that changed if the destination is the current mode, and a single file
+     * write and NT update for all of them.
+     * 
+     * @param sourceMode The mode to copy from
+     * @param destMode   The mode to copy to
+     * @param ids        The ids of the keys to copy, or null to copy every key
+     */
+    private static void copyKeys(String sourceMode, String destMode, int[] ids) {
+        int source = ConfigTable.modeIndex(sourceMode);
+        int dest = ConfigTable.modeIndex(destMode);
+        if (source < 0 || dest < 0)
+            throw new IllegalArgumentException("Invalid mode: " + sourceMode + " or " + destMode);
+        TaskTimer timer = new TaskTimer();
+        boolean current = destMode.equals(modeSelector.getMode());
+        boolean wasApplied = current && isApplied(destMode);
+        int[] copied = ConfigTable.copy(source, dest, ids);
+        timer.logTime("CopyKeys");
+        TaskTimer.logCount("CopiedKeys", copied.length);
+        if (copied.length == 0)
+            return;
+        hasModified = true;
+        if (ids == null) {
+            // Every key may have changed, so a delta would be as big as a full update
+            requestNTUpdate();
+        } else {
+            for (int id : copied) {
+                requestNTDelta(ConfigTable.keyOf(id));
             }
         }
+        // Only the current mode's values are applied
+        if (!current)
+            return;
+        Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+        SetterExecutor.runBatch(() -> {
+            updateKeys(copied, dest, false, changed);
+            commitClasses(changed);
+        });
+        // Every other key is as it was, so the next mode switch can still skip them
+        if (wasApplied)
+            appliedVersion = ConfigTable.version(dest);
+        timer.logTime("ApplyCopy");
     }
 
     /**
-     * Read the KeySetter and ModeSetter from NT to set
+     * Handle a KeySetter command received over NT
+     * 
+     * @param keySetRaw The key, comment, and the value for each mode, separated by
+     *                  commas
      */
-    private static void handleKeySetter() {
-        String keySetRaw = NT4Interface.getSetKeys();
-        if (!keySetRaw.isEmpty()) {
-            TaskTimer timer = new TaskTimer();
-            String[] keySet = keySetRaw.split(",");
-            Logger.logInfo("Received NT update for key " + keySet[0]);
-            for (int i = 0; i < ModeSelector.modes.length; i++) {
-                String mode = ModeSelector.modes[i];
-                String key = keySet[0];
-                JsonUtils.modifyValue(mode, key, keySet[2 + i], keySet[1]);
+    static void handleKeySetter(String keySetRaw) {
+        if (!canEditFromNT())
+            return;
+        TaskTimer timer = new TaskTimer();
+        String[] keySet = keySetRaw.split(",");
+        String key = keySet[0];
+        Logger.logInfo("Received NT update for key " + key);
+        Configurable<?> configurable = configValues.get(key);
+        if (configurable == null) {
+            Logger.logWarning("Invalid key set over NT: " + key);
+            return;
+        }
+        try {
+            Object[] values = new Object[ModeSelector.modes.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parseToJson(configurable, keySet[2 + i]);
+            }
+            for (int i = 0; i < values.length; i++) {
+                JsonUtils.modifyValue(ModeSelector.modes[i], key, values[i], keySet[1]);
             }
-            updateSingleKey(keySet[0]);
-            timer.logTime("NT Key Setter");
+            Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+            updateSingleKey(key, changed);
+            commitClasses(changed);
+        } catch (Exception e) {
+            Logger.logError("Invalid value set over NT for key " + key + ": " + e.getMessage());
         }
+        timer.logTime("NT Key Setter");
+    }
 
-        String modeSet = NT4Interface.getSetModes();
+    /**
+     * Handle a ModeSetter command received over NT
+     * 
+     * @param modeSet The mode to switch to
+     */
+    static void handleModeSetter(String modeSet) {
+        if (!canEditFromNT())
+            return;
         if (Arrays.asList(ModeSelector.modes).contains(modeSet)) {
             Logger.logInfo("Mode set over NT to " + modeSet);
-            JsonUtils.modifyMode(modeSet);
-            reload();
-            // If running in simulation, set the mode selector manually, since we overwrote
-            // it before without writing out to the config file
-            if (modeSelector != null && RobotBase.isSimulation() && modeSelector.getMode().equals("simulation")) {
-                modeSelector.setMode(modeSet);
-            }
-        } else if (!modeSet.isEmpty()) {
+            switchModeFromNT(modeSet);
+        } else {
             Logger.logWarning("Invalid mode set over NT: " + modeSet);
         }
+    }
 
-        String classSet = NT4Interface.getSetClasses();
-        if (!classSet.isEmpty()) {
-            String[] keySet = classSet.split(",");
-            String classSetType = keySet[0];
-            Logger.logInfo("Received NT update for class " + keySet[1]);
-            switch (classSetType) {
-                case "single": {
-                    String key = keySet[1];
-                    String mode = keySet[2];
-                    if (!Arrays.asList(ModeSelector.modes).contains(mode)) {
-                        Logger.logWarning("Invalid mode for class set over NT: " + mode);
-                        return;
-                    }
-                    JsonUtils.modifyValue(mode, key, keySet[3]);
-                    updateSingleKey(key);
-                    break;
-                }
-                case "copyOne": {
-                    String key = keySet[1];
-                    String sourceMode = keySet[2];
-                    String destMode = keySet[3];
-
-                    // Copy all values from source mode for the class key to dest mode for the class
-                    // key
-                    JSONObject source = JsonUtils.getModeMap(sourceMode);
-
-                    ConfigurableClass classObj = configurableClasses.get(key);
-                    if (classObj == null) {
-                        Logger.logWarning("Invalid class set over NT: " + key);
-                        return;
-                    }
+    private static void switchModeFromNT(String mode) {
+        JsonUtils.modifyMode(mode);
+        reload();
+        // If running in simulation, set the mode selector manually, since we overwrote
+        // it before without writing out to the config file
+        if (modeSelector != null && isSimulation() && modeSelector.getMode().equals("simulation")) {
+            modeSelector.setMode(mode);
+        }
+    }
 
-                    updateOneClass(sourceMode, source, classObj, destMode);
-                    break;
-                }
-                case "copyAll": {
-                    String key = keySet[1];
-                    String sourceMode = keySet[2];
+    /**
+     * Handle a message received on the OxConfig/Commands topic. Unlike the
+     * single-slot setter entries, every message is queued, carries an id, and
+     * is acknowledged on OxConfig/Acks with {"id": id, "ok": true} or
+     * {"id": id, "ok": false, "error": "..."}, so the client can retry commands
+     * that were never acknowledged. Commands that were already applied are
+     * acknowledged again without being reapplied.
+     * 
+     * Messages are JSON objects with an "id" and a "type":
+     * <ul>
+     * <li>"set": {"edits": [{"key": key, "values": {mode: value, ...},
+     * "comment": comment}, ...]} sets any number of keys in any modes. Values
+     * are native JSON, so they may contain commas. The comment is optional.
+     * Either every edit is applied or none are.</li>
+     * <li>"mode": {"mode": mode} switches the current mode</li>
+     * <li>"copy": {"source": mode, "dest": mode, "class": key} copies every
+     * value, or only the values of one class if "class" is given, between
+     * modes</li>
+     * <li>"resync": {} resends the full config</li>
+     * <li>"since": {"version": v} resends the keys changed since a version
+     * published on the Delta topic, or the full config if the version is too
+     * old or delta updates are disabled</li>
+     * <li>"undo": {} undoes the last change to the config, see undo()</li>
+     * </ul>
+     * 
+     * @param message The JSON message
+     */
+    static void handleCommandMessage(String message) {
+        long id = -1;
+        try {
+            JSONObject command = new JSONObject(message);
+            id = command.getLong("id");
+            NT4Interface.commandReceived();
+            if (handledCommandIds.containsKey(id)) {
+                NT4Interface.publishAck(id, null);
+                return;
+            }
+            if (!canEditFromNT())
+                throw new IllegalStateException("Editing over NT is disabled");
+            applyCommand(command);
+            handledCommandIds.put(id, Boolean.TRUE);
+            Logger.logInfo("Applied NT command " + id + " (" + command.getString("type") + ")");
+            NT4Interface.publishAck(id, null);
+        } catch (Exception e) {
+            Logger.logWarning("Rejected NT command " + id + ": " + e.getMessage());
+            NT4Interface.publishAck(id, e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
 
-                    JSONObject source = JsonUtils.getModeMap(sourceMode);
+    /**
+     * Applies a command from the OxConfig/Commands topic, see
+     * handleCommandMessage()
+     * 
+     * @param command The command
+     * @throws RuntimeException If the command is invalid, in which case nothing
+     *                          is changed
+     */
+    static void applyCommand(JSONObject command) {
+        String type = command.getString("type");
+        switch (type) {
+            case "set":
+                applyEdits(command.getJSONArray("edits"));
+                break;
+            case "mode": {
+                String mode = command.getString("mode");
+                if (!Arrays.asList(ModeSelector.modes).contains(mode))
+                    throw new IllegalArgumentException("Invalid mode: " + mode);
+                switchModeFromNT(mode);
+                break;
+            }
+            case "copy": {
+                String sourceMode = command.getString("source");
+                String destMode = command.getString("dest");
+                List<String> modes = Arrays.asList(ModeSelector.modes);
+                if (!modes.contains(sourceMode) || !modes.contains(destMode))
+                    throw new IllegalArgumentException("Invalid mode: " + sourceMode + " or " + destMode);
+                if (command.has("class")) {
+                    ConfigurableClass classObj = configurableClasses.get(command.getString("class"));
+                    if (classObj == null)
+                        throw new IllegalArgumentException("Invalid class: " + command.getString("class"));
+                    updateOneClass(sourceMode, classObj, destMode);
+                } else {
+                    copyMode(sourceMode, destMode);
+                }
+                break;
+            }
+            case "resync":
+                requestNTUpdate();
+                break;
+            case "since":
+                publishChangesSince(command.getLong("version"));
+                break;
+            case "undo":
+                if (!undoLastChange())
+                    throw new IllegalStateException("Nothing to undo");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + type);
+        }
+    }
 
-                    ConfigurableClass classObj = configurableClasses.get(key);
-                    if (classObj == null) {
-                        Logger.logWarning("Invalid class set over NT: " + key);
-                        return;
-                    }
+    /**
+     * Sends NT clients the keys changed since a config version, or the full
+     * config if the version is no longer in the history
+     * 
+     * @param version The version the client has
+     */
+    private static void publishChangesSince(long version) {
+        int[] ids = ConfigTable.changedSince(version);
+        if (ids == null) {
+            requestNTUpdate();
+            return;
+        }
+        for (int id : ids) {
+            requestNTDelta(ConfigTable.keyOf(id));
+        }
+    }
 
-                    for (String mode : ModeSelector.modes) {
-                        if (mode.equals(sourceMode))
-                            continue;
-                        updateOneClass(sourceMode, source, classObj, mode);
-                    }
+    /**
+     * Undoes the last committed change and applies the restored values
+     * 
+     * @return Whether there was a change to undo
+     */
+    private static boolean undoLastChange() {
+        if (!ConfigTable.undo())
+            return false;
+        hasModified = true;
+        requestNTUpdate();
+        reloadConfig();
+        Logger.logInfo("Undid the last config change, now at version " + ConfigTable.latestVersion());
+        return true;
+    }
 
-                    break;
-                }
+    /**
+     * Validates and then applies a batch of edits from a "set" command. Nothing
+     * is changed if any edit is invalid.
+     * 
+     * @param edits The edits to apply
+     */
+    private static void applyEdits(JSONArray edits) {
+        List<String> modes = Arrays.asList(ModeSelector.modes);
+        int count = edits.length();
+        String[] keys = new String[count];
+        JSONObject[] values = new JSONObject[count];
+        // Validate everything first, so a bad edit can't leave a half applied batch
+        for (int i = 0; i < count; i++) {
+            JSONObject edit = edits.getJSONObject(i);
+            String key = edit.getString("key");
+            Configurable<?> configurable = configValues.get(key);
+            if (configurable == null || key.equalsIgnoreCase("root/mode"))
+                throw new IllegalArgumentException("Invalid key: " + key);
+            JSONObject modeValues = edit.getJSONObject("values");
+            JSONObject normalized = new JSONObject();
+            for (String mode : modeValues.keySet()) {
+                if (!modes.contains(mode))
+                    throw new IllegalArgumentException("Invalid mode for key " + key + ": " + mode);
+                normalized.put(mode, normalizeJson(configurable, modeValues.get(mode)));
+            }
+            keys[i] = key;
+            values[i] = normalized;
+        }
+        List<ConfigTransaction.Edit> transaction = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            JSONObject edit = edits.getJSONObject(i);
+            String comment = edit.has("comment") ? edit.getString("comment") : null;
+            for (String mode : values[i].keySet()) {
+                transaction.add(new ConfigTransaction.Edit(mode, keys[i], values[i].get(mode), comment));
             }
+        }
+        applyTransaction(transaction);
+    }
 
+    /**
+     * Applies the edits of a transaction at once: every value is written to the
+     * ConfigTable, then the setters of the edited keys in the current mode run in
+     * one batch, and a single file write and NT delta are requested. Edits that
+     * change neither the value nor the comment are skipped, so they don't change
+     * the version or run setters. Nothing is changed if any key or mode is no
+     * longer valid, which ConfigTransaction already checked when it was
+     * committed.
+     * 
+     * @param edits The edits, validated by ConfigTransaction
+     */
+    static void applyTransaction(List<ConfigTransaction.Edit> edits) {
+        TaskTimer timer = new TaskTimer();
+        String currentMode = modeSelector.getMode();
+        int current = ConfigTable.modeIndex(currentMode);
+        int count = edits.size();
+        int[] ids = new int[count];
+        int[] modes = new int[count];
+        for (int i = 0; i < count; i++) {
+            ConfigTransaction.Edit edit = edits.get(i);
+            ids[i] = ConfigTable.idOf(edit.key);
+            modes[i] = edit.mode == null ? current : ConfigTable.modeIndex(edit.mode);
+            if (ids[i] < 0 || modes[i] < 0) {
+                Logger.logError("Dropped transaction of " + count + " edits: invalid key " + edit.key + " or mode "
+                        + edit.mode);
+                return;
+            }
         }
-        if (hasModified) {
-            TaskTimer timer = new TaskTimer();
-            writeFiles();
-            hasModified = false;
-            timer.logTime("WriteFile");
+        boolean wasApplied = isApplied(currentMode);
+        Object[] editValues = new Object[count];
+        String[] editComments = new String[count];
+        for (int i = 0; i < count; i++) {
+            // Comment only edits have no value, and keep the current one
+            editValues[i] = edits.get(i).value;
+            editComments[i] = edits.get(i).comment;
         }
+        boolean[] written = ConfigTable.setAll(modes, ids, editValues, editComments);
+        Set<String> editedKeys = new LinkedHashSet<>();
+        Set<Integer> currentIds = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (!written[i])
+                continue;
+            editedKeys.add(edits.get(i).key);
+            if (modes[i] == current)
+                currentIds.add(ids[i]);
+        }
+        timer.logTime("WriteTransaction");
+        if (editedKeys.isEmpty())
+            return;
+        hasModified = true;
+        for (String key : editedKeys) {
+            requestNTDelta(key);
+        }
+        Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+        int[] applyIds = currentIds.stream().mapToInt(Integer::intValue).toArray();
+        SetterExecutor.runBatch(() -> {
+            updateKeys(applyIds, current, false, changed);
+            commitClasses(changed);
+        });
+        // Every key that changed was applied, so the next mode switch can still
+        // skip the rest
+        if (wasApplied)
+            appliedVersion = ConfigTable.version(current);
+        timer.logTime("ApplyTransaction");
+        TaskTimer.logCount("TransactionEdits", count);
+    }
 
+    /**
+     * Decodes and re-encodes a JSON value with a configurable's codec, which
+     * validates it and converts it to the type it is stored as
+     */
+    private static <T> Object normalizeJson(Configurable<T> configurable, Object json) {
+        ValueCodec<T> codec = configurable.getCodec();
+        return codec.toJson(codec.fromJson(json));
     }
 
-    private static void updateOneClass(String sourceMode, JSONObject source, ConfigurableClass classObj, String mode) {
-        for (ConfigurableClassParam<?> param : classObj.getParameters()) {
-            String paramKey = param.getKey();
-            if (!source.has(paramKey)) {
-                continue;
+    /**
+     * Handle a ClassSetter command received over NT
+     * 
+     * @param classSet The type of set, the class key, and the arguments for that
+     *                 type, separated by commas
+     */
+    static void handleClassSetter(String classSet) {
+        if (!canEditFromNT())
+            return;
+        String[] keySet = classSet.split(",");
+        String classSetType = keySet[0];
+        Logger.logInfo("Received NT update for class " + keySet[1]);
+        switch (classSetType) {
+            case "single": {
+                String key = keySet[1];
+                String mode = keySet[2];
+                if (!Arrays.asList(ModeSelector.modes).contains(mode)) {
+                    Logger.logWarning("Invalid mode for class set over NT: " + mode);
+                    return;
+                }
+                Configurable<?> configurable = configValues.get(key);
+                if (configurable == null) {
+                    Logger.logWarning("Invalid class parameter set over NT: " + key);
+                    return;
+                }
+                try {
+                    JsonUtils.modifyValue(mode, key, parseToJson(configurable, keySet[3]));
+                } catch (Exception e) {
+                    Logger.logError("Invalid value set over NT for key " + key + ": " + e.getMessage());
+                    return;
+                }
+                Map<ConfigurableClass, Set<ConfigurableClassParam<?>>> changed = new LinkedHashMap<>();
+                updateSingleKey(key, changed);
+                commitClasses(changed);
+                break;
             }
-            String sourceVal = JsonUtils.getRealValue(source, paramKey, param.shouldStoreComment());
-            JsonUtils.modifyValue(mode, paramKey, sourceVal);
-            updateSingleKey(paramKey);
+            case "copyOne": {
+                String key = keySet[1];
+                String sourceMode = keySet[2];
+                String destMode = keySet[3];
+
+                // Copy all values from source mode for the class key to dest mode for the class
+                // key
+                ConfigurableClass classObj = configurableClasses.get(key);
+                if (classObj == null) {
+                    Logger.logWarning("Invalid class set over NT: " + key);
+                    return;
+                }
+
+                updateOneClass(sourceMode, classObj, destMode);
+                break;
+            }
+            case "copyAll": {
+                String key = keySet[1];
+                String sourceMode = keySet[2];
+
+                ConfigurableClass classObj = configurableClasses.get(key);
+                if (classObj == null) {
+                    Logger.logWarning("Invalid class set over NT: " + key);
+                    return;
+                }
+
+                for (String mode : ModeSelector.modes) {
+                    if (mode.equals(sourceMode))
+                        continue;
+                    updateOneClass(sourceMode, classObj, mode);
+                }
+
+                break;
+            }
+        }
+    }
+
+    private static void updateOneClass(String sourceMode, ConfigurableClass classObj, String mode) {
+        List<ConfigurableClassParam<?>> params = classObj.getParameters();
+        int[] ids = new int[params.size()];
+        int count = 0;
+        for (ConfigurableClassParam<?> param : params) {
+            int id = ConfigTable.idOf(param.getKey());
+            if (id >= 0)
+                ids[count++] = id;
         }
+        copyKeys(sourceMode, mode, Arrays.copyOf(ids, count));
     }
 
 }
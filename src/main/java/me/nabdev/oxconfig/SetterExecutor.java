@@ -0,0 +1,210 @@
+package me.nabdev.oxconfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs setters and class commits. By default they run directly on the thread
+ * that submits them (the OxConfig thread). When enabled, or inside a parallel
+ * batch, they run on a fixed pool of threads instead. Tasks with the same order
+ * key (the key of a ConfigurableClass, or of a standalone parameter) always run
+ * one at a time in the order they were submitted, while different keys run in
+ * parallel, as many at once as the pool has threads.
+ */
+class SetterExecutor {
+    /**
+     * How many threads the pool has when maxParallelism isn't set
+     */
+    static int poolSize = 4;
+    /**
+     * Whether runBatch() runs tasks in parallel when the executor isn't enabled
+     */
+    static volatile boolean parallelBatches = false;
+
+    private static volatile boolean enabled = false;
+    // How many order keys may run at once, 0 for poolSize
+    private static int maxParallelism = 0;
+    private static ThreadPoolExecutor executor = null;
+    // The last task of each order key, removed once it finishes. The next task of
+    // the key runs after it.
+    private static final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    // The last task of each order key submitted by this thread in a batch, if any
+    private static final ThreadLocal<Map<String, CompletableFuture<Void>>> currentBatch = new ThreadLocal<>();
+
+    // Tasks submitted but not yet finished, and callbacks waiting for there to be
+    // none. Both guarded by idleLock.
+    private static final Object idleLock = new Object();
+    private static long outstanding = 0;
+    private static final List<Runnable> idleCallbacks = new ArrayList<>();
+
+    /**
+     * Sets whether tasks run on the executor instead of the submitting thread
+     *
+     * @param enable Whether to use the executor
+     */
+    static synchronized void setEnabled(boolean enable) {
+        if (enable)
+            getExecutor();
+        enabled = enable;
+    }
+
+    /**
+     * Sets how many order keys may run at once, which is the size of the pool.
+     * Setters often talk to devices over the CAN bus, which only has so much
+     * bandwidth.
+     *
+     * @param max The maximum, 0 for poolSize
+     */
+    static synchronized void setMaxParallelism(int max) {
+        maxParallelism = max;
+        if (executor == null)
+            return;
+        int size = threadCount();
+        // The core size can't go over the maximum size, so grow the maximum first
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * Stops the pool once its queued tasks finish, the next task starts a new one.
+     * Must only be called while idle, since tasks of a key that is still running
+     * would be rejected by the old pool.
+     */
+    static synchronized void shutdown() {
+        if (executor == null)
+            return;
+        executor.shutdown();
+        executor = null;
+    }
+
+    /**
+     * Runs the given code, and runs every task it submits in parallel (even if the
+     * executor isn't enabled), waiting for them all to finish before returning.
+     * Does nothing special if the executor is enabled, since tasks already run in
+     * parallel, or if parallel batches are disabled.
+     *
+     * @param submitter The code that submits the tasks
+     */
+    static void runBatch(Runnable submitter) {
+        if (enabled || !parallelBatches || currentBatch.get() != null) {
+            submitter.run();
+            return;
+        }
+        getExecutor();
+        Map<String, CompletableFuture<Void>> batch = new HashMap<>();
+        currentBatch.set(batch);
+        try {
+            submitter.run();
+        } finally {
+            currentBatch.remove();
+        }
+        long start = System.nanoTime();
+        // Tasks of a key run in order, so its last task finishes after the rest
+        CompletableFuture.allOf(batch.values().toArray(new CompletableFuture<?>[0])).join();
+        TaskTimer.record("ParallelApply", System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a task after every task previously submitted with the same order key
+     *
+     * @param orderKey The key tasks are ordered by
+     * @param task     The task
+     */
+    static void submit(String orderKey, Runnable task) {
+        Map<String, CompletableFuture<Void>> batch = currentBatch.get();
+        if (!enabled && batch == null) {
+            run(task);
+            return;
+        }
+        synchronized (idleLock) {
+            outstanding++;
+        }
+        ThreadPoolExecutor pool = getExecutor();
+        Runnable counted = () -> {
+            try {
+                run(task);
+            } finally {
+                finished();
+            }
+        };
+        // run() catches everything, so every task completes normally and the next
+        // task of the key always runs
+        CompletableFuture<Void> future = tails.compute(orderKey,
+                (key, tail) -> tail == null ? CompletableFuture.runAsync(counted, pool)
+                        : tail.thenRunAsync(counted, pool));
+        future.whenComplete((result, error) -> tails.remove(orderKey, future));
+        if (batch != null)
+            batch.put(orderKey, future);
+    }
+
+    /**
+     * Runs a callback once every submitted task has finished, immediately if none
+     * are running
+     *
+     * @param callback The callback, which must be fast since it may run on a
+     *                 setter thread
+     */
+    static void runWhenIdle(Runnable callback) {
+        synchronized (idleLock) {
+            if (outstanding > 0) {
+                idleCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            // Errors too (a stack overflow, a failed static initializer), so one bad
+            // setter can't stop the rest
+            Logger.logError("Failed to run setter: " + e);
+        }
+    }
+
+    private static void finished() {
+        List<Runnable> callbacks;
+        synchronized (idleLock) {
+            outstanding--;
+            if (outstanding > 0 || idleCallbacks.isEmpty())
+                return;
+            callbacks = new ArrayList<>(idleCallbacks);
+            idleCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) {
+            run(callback);
+        }
+    }
+
+    private static int threadCount() {
+        return maxParallelism > 0 ? maxParallelism : poolSize;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int size = threadCount();
+            Logger.logInfo("Running setters on a pool of " + size + " threads");
+            executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(size, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("OxConfig Setter");
+                thread.setDaemon(true);
+                thread.setPriority(3);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
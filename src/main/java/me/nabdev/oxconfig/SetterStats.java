@@ -0,0 +1,144 @@
+package me.nabdev.oxconfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONArray;
+
+/**
+ * Tracks how long the setter of each key (and the setters and commit of each
+ * configurable class) take, so slow setters that hold up reloads can be found.
+ * Safe to record into from any thread.
+ */
+class SetterStats {
+    /**
+     * How many of the slowest keys and classes are published
+     */
+    static int tableSize = 10;
+    /**
+     * Setters that take longer than this log a warning, 0 to disable
+     */
+    static volatile long budgetNanos = 0;
+
+    private static final Map<String, Stats> keyStats = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> classStats = new ConcurrentHashMap<>();
+    private static volatile boolean changed = false;
+
+    /**
+     * Records a call to the setter of a key
+     *
+     * @param key      The key
+     * @param classKey The key of the class the key belongs to, or null for
+     *                 standalone parameters
+     * @param nanos    How long the setter took
+     */
+    static void recordSetter(String key, String classKey, long nanos) {
+        keyStats.computeIfAbsent(key, k -> new Stats()).record(nanos);
+        if (classKey != null)
+            classStats.computeIfAbsent(classKey, k -> new Stats()).record(nanos);
+        changed = true;
+        checkBudget("Setter for " + key, nanos);
+    }
+
+    /**
+     * Records a call to onParametersCommitted() of a class
+     *
+     * @param classKey The key of the class
+     * @param nanos    How long the commit took
+     */
+    static void recordCommit(String classKey, long nanos) {
+        classStats.computeIfAbsent(classKey, k -> new Stats()).record(nanos);
+        changed = true;
+        checkBudget("Commit for class " + classKey, nanos);
+    }
+
+    private static void checkBudget(String name, long nanos) {
+        long budget = budgetNanos;
+        if (budget > 0 && nanos > budget)
+            Logger.logWarning(name + " took " + TaskTimer.toMs(nanos) + "ms, over the budget of "
+                    + TaskTimer.toMs(budget) + "ms");
+    }
+
+    /**
+     * Publishes the slowest keys and classes to OxConfig/Profiling/SlowSetters
+     * and SlowClasses (or stdout), if anything was recorded since the last call.
+     * Each is a JSON array of [name, count, mean ms, max ms, total ms], slowest
+     * max first.
+     */
+    static void publish() {
+        if (!changed)
+            return;
+        changed = false;
+        String setters = slowSetters().toString();
+        String classes = slowClasses().toString();
+        if (TaskTimer.nt) {
+            NT4Interface.setProfilingString("SlowSetters", setters);
+            NT4Interface.setProfilingString("SlowClasses", classes);
+        } else {
+            System.out.println("SlowSetters: " + setters);
+            System.out.println("SlowClasses: " + classes);
+        }
+    }
+
+    /**
+     * Gets the slowest keys, as published to SlowSetters
+     *
+     * @return The rows of the table, see publish()
+     */
+    static JSONArray slowSetters() {
+        return buildTable(keyStats);
+    }
+
+    /**
+     * Gets the slowest classes, as published to SlowClasses
+     *
+     * @return The rows of the table, see publish()
+     */
+    static JSONArray slowClasses() {
+        return buildTable(classStats);
+    }
+
+    /**
+     * Clears all recorded setter times
+     */
+    static void reset() {
+        keyStats.clear();
+        classStats.clear();
+        changed = true;
+    }
+
+    private static JSONArray buildTable(Map<String, Stats> stats) {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().max.get(), a.getValue().max.get()));
+        JSONArray table = new JSONArray();
+        for (int i = 0; i < Math.min(tableSize, entries.size()); i++) {
+            Stats entry = entries.get(i).getValue();
+            long count = entry.count.sum();
+            long total = entry.total.sum();
+            JSONArray row = new JSONArray();
+            row.put(entries.get(i).getKey());
+            row.put(count);
+            row.put(count == 0 ? 0 : TaskTimer.toMs(total / count));
+            row.put(TaskTimer.toMs(entry.max.get()));
+            row.put(TaskTimer.toMs(total));
+            table.put(row);
+        }
+        return table;
+    }
+
+    private static class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -1,30 +1,103 @@
 package me.nabdev.oxconfig;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long each phase of OxConfig takes into a histogram per phase.
+ * The histograms are flushed to NT (OxConfig/Profiling/[phase]/p50, p99, max,
+ * mean in ms, and count) or stdout at a fixed rate by the handler thread, so
+ * timing a phase never writes to NT itself.
+ */
 class TaskTimer {
     public static boolean nt;
+    /**
+     * How often the histograms are flushed, in milliseconds
+     */
+    static long flushPeriodMs = 1000;
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, Long> counts = new ConcurrentHashMap<>();
+    // Only used by the handler thread
+    private static long lastFlushTime = System.nanoTime();
 
     private long lastCallTime;
 
     public TaskTimer() {
         if (!OxConfig.isProfiling)
             return;
-        lastCallTime = System.currentTimeMillis();
+        lastCallTime = System.nanoTime();
     }
 
     public void logTime(String key) {
         if (!OxConfig.isProfiling)
             return;
-        long cur = System.currentTimeMillis();
-        if (nt)
-            NT4Interface.setProfilingTime(key, (double) (cur - lastCallTime));
-        else
-            System.out.println(key + ": " + (cur - lastCallTime));
+        long cur = System.nanoTime();
+        record(key, cur - lastCallTime);
         lastCallTime = cur;
     }
 
+    /**
+     * Records a duration for a phase
+     *
+     * @param key   The phase
+     * @param nanos The duration in nanoseconds
+     */
+    static void record(String key, long nanos) {
+        if (!OxConfig.isProfiling)
+            return;
+        histograms.computeIfAbsent(key, k -> new LatencyHistogram()).record(nanos);
+    }
+
+    public static void logCount(String key, long count) {
+        if (!OxConfig.isProfiling)
+            return;
+        counts.put(key, count);
+    }
+
     public void reset() {
         if (!OxConfig.isProfiling)
             return;
-        lastCallTime = System.currentTimeMillis();
+        lastCallTime = System.nanoTime();
+    }
+
+    /**
+     * Flushes the histograms if the flush period has passed since the last flush
+     */
+    static void flushIfDue() {
+        if (!OxConfig.isProfiling)
+            return;
+        long now = System.nanoTime();
+        if (now - lastFlushTime < flushPeriodMs * 1_000_000)
+            return;
+        lastFlushTime = now;
+        flush();
+    }
+
+    private static void flush() {
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram.Summary summary = entry.getValue().snapshotAndReset();
+            // Keep showing the last interval of phases that didn't run
+            if (summary.count == 0)
+                continue;
+            if (nt)
+                NT4Interface.setProfilingSummary(entry.getKey(), summary);
+            else
+                System.out.println(entry.getKey() + ": count=" + summary.count + " p50=" + toMs(summary.p50)
+                        + "ms p99=" + toMs(summary.p99) + "ms max=" + toMs(summary.max) + "ms mean="
+                        + toMs(summary.mean) + "ms");
+        }
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (nt)
+                NT4Interface.setProfilingTime(entry.getKey(), (double) entry.getValue());
+            else
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+        counts.clear();
+        SetterStats.publish();
+    }
+
+    static double toMs(long nanos) {
+        return nanos / 1e6;
     }
 }
@@ -0,0 +1,74 @@
+package me.nabdev.oxconfig;
+
+import java.util.Objects;
+
+/**
+ * Converts values of a configurable type to and from their JSON
+ * representation. A codec is resolved once when a parameter is created, so
+ * reloading never has to inspect the type of a value again.
+ *
+ * Codecs for numbers, booleans, strings, enums, primitive arrays,
+ * Translation2d and WPILib units are built in. Codecs for other types can be
+ * added with OxConfig.registerCodec() before any parameters of that type are
+ * created.
+ *
+ * @param <T> The type of value this codec handles
+ */
+public interface ValueCodec<T> {
+    /**
+     * Gets the name of the type, displayed in the tuning GUI (e.g. "Double")
+     *
+     * @return The name of the type
+     */
+    String getTypeName();
+
+    /**
+     * Converts a value read from the config file into the configurable type. The
+     * value is usually the native JSON type returned by toJson(), but may also be
+     * a String written by an older version of OxConfig.
+     *
+     * @param json The JSON value
+     * @return The decoded value
+     */
+    T fromJson(Object json);
+
+    /**
+     * Converts a value to the JSON type it should be stored as in the config file
+     * (a Number, Boolean, String, JSONArray or JSONObject)
+     *
+     * @param value The value to convert
+     * @return The JSON value
+     */
+    Object toJson(T value);
+
+    /**
+     * Parses a value from the text sent by the tuning GUI over NetworkTables
+     *
+     * @param text The text to parse
+     * @return The parsed value
+     */
+    T parse(String text);
+
+    /**
+     * Formats a value as text to be displayed and edited in the tuning GUI. The
+     * result must be accepted by parse() and must not contain commas.
+     *
+     * @param value The value to format
+     * @return The formatted value
+     */
+    default String format(T value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Checks if two values are equal, used to skip setters whose value did not
+     * change on reload
+     *
+     * @param a The current value
+     * @param b The new value
+     * @return Whether the values are considered equal
+     */
+    default boolean isEqual(T a, T b) {
+        return Objects.equals(a, b);
+    }
+}
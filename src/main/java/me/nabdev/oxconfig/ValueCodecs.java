@@ -0,0 +1,630 @@
+package me.nabdev.oxconfig;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONArray;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Unit;
+
+/**
+ * Registry of the codecs used to convert configurable values to and from JSON
+ */
+class ValueCodecs {
+    private static final Map<Class<?>, ValueCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    static final ValueCodec<Double> DOUBLE = new NumberCodec<>("Double") {
+        @Override
+        Double fromNumber(Number number) {
+            return number.doubleValue();
+        }
+
+        @Override
+        public Double parse(String text) {
+            return Double.valueOf(text);
+        }
+
+        @Override
+        public boolean isEqual(Double a, Double b) {
+            return doublesEqual(a, b);
+        }
+    };
+
+    static final ValueCodec<Float> FLOAT = new NumberCodec<>("Float") {
+        @Override
+        Float fromNumber(Number number) {
+            return number.floatValue();
+        }
+
+        @Override
+        public Float parse(String text) {
+            return Float.valueOf(text);
+        }
+
+        @Override
+        public boolean isEqual(Float a, Float b) {
+            return doublesEqual(a, b);
+        }
+    };
+
+    static final ValueCodec<Integer> INTEGER = new NumberCodec<>("Integer") {
+        @Override
+        Integer fromNumber(Number number) {
+            return (int) wholeNumber(number, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public Integer parse(String text) {
+            return Integer.valueOf(text);
+        }
+    };
+
+    static final ValueCodec<Long> LONG = new NumberCodec<>("Long") {
+        @Override
+        Long fromNumber(Number number) {
+            return wholeNumber(number, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        @Override
+        public Long parse(String text) {
+            return Long.valueOf(text);
+        }
+    };
+
+    static final ValueCodec<Short> SHORT = new NumberCodec<>("Short") {
+        @Override
+        Short fromNumber(Number number) {
+            return (short) wholeNumber(number, Short.MIN_VALUE, Short.MAX_VALUE);
+        }
+
+        @Override
+        public Short parse(String text) {
+            return Short.valueOf(text);
+        }
+    };
+
+    static final ValueCodec<Boolean> BOOLEAN = new ValueCodec<>() {
+        @Override
+        public String getTypeName() {
+            return "Boolean";
+        }
+
+        @Override
+        public Boolean fromJson(Object json) {
+            if (json instanceof Boolean)
+                return (Boolean) json;
+            return parse(json.toString());
+        }
+
+        @Override
+        public Object toJson(Boolean value) {
+            return value;
+        }
+
+        @Override
+        public Boolean parse(String text) {
+            return Boolean.valueOf(text);
+        }
+    };
+
+    static final ValueCodec<String> STRING = new ValueCodec<>() {
+        @Override
+        public String getTypeName() {
+            return "String";
+        }
+
+        @Override
+        public String fromJson(Object json) {
+            if (json instanceof String)
+                return (String) json;
+            return json.toString();
+        }
+
+        @Override
+        public Object toJson(String value) {
+            return value;
+        }
+
+        @Override
+        public String parse(String text) {
+            return text;
+        }
+    };
+
+    static final ValueCodec<double[]> DOUBLE_ARRAY = new ArrayCodec<>("DoubleArray") {
+        @Override
+        double[] fromArray(JSONArray array) {
+            double[] values = new double[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.getDouble(i);
+            }
+            return values;
+        }
+
+        @Override
+        public Object toJson(double[] value) {
+            JSONArray array = new JSONArray();
+            for (double v : value) {
+                array.put(v);
+            }
+            return array;
+        }
+
+        @Override
+        public double[] parse(String text) {
+            String[] split = splitArray(text);
+            double[] values = new double[split.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Double.parseDouble(split[i]);
+            }
+            return values;
+        }
+
+        @Override
+        public String format(double[] value) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0)
+                    builder.append(ARRAY_SEPARATOR);
+                builder.append(value[i]);
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public boolean isEqual(double[] a, double[] b) {
+            if (a.length != b.length)
+                return false;
+            for (int i = 0; i < a.length; i++) {
+                if (!doublesEqual(a[i], b[i]))
+                    return false;
+            }
+            return true;
+        }
+    };
+
+    static final ValueCodec<int[]> INT_ARRAY = new ArrayCodec<>("IntegerArray") {
+        @Override
+        int[] fromArray(JSONArray array) {
+            int[] values = new int[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.getInt(i);
+            }
+            return values;
+        }
+
+        @Override
+        public Object toJson(int[] value) {
+            JSONArray array = new JSONArray();
+            for (int v : value) {
+                array.put(v);
+            }
+            return array;
+        }
+
+        @Override
+        public int[] parse(String text) {
+            String[] split = splitArray(text);
+            int[] values = new int[split.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Integer.parseInt(split[i]);
+            }
+            return values;
+        }
+
+        @Override
+        public String format(int[] value) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0)
+                    builder.append(ARRAY_SEPARATOR);
+                builder.append(value[i]);
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public boolean isEqual(int[] a, int[] b) {
+            return Arrays.equals(a, b);
+        }
+    };
+
+    static final ValueCodec<boolean[]> BOOLEAN_ARRAY = new ArrayCodec<>("BooleanArray") {
+        @Override
+        boolean[] fromArray(JSONArray array) {
+            boolean[] values = new boolean[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.getBoolean(i);
+            }
+            return values;
+        }
+
+        @Override
+        public Object toJson(boolean[] value) {
+            JSONArray array = new JSONArray();
+            for (boolean v : value) {
+                array.put(v);
+            }
+            return array;
+        }
+
+        @Override
+        public boolean[] parse(String text) {
+            String[] split = splitArray(text);
+            boolean[] values = new boolean[split.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Boolean.parseBoolean(split[i]);
+            }
+            return values;
+        }
+
+        @Override
+        public String format(boolean[] value) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0)
+                    builder.append(ARRAY_SEPARATOR);
+                builder.append(value[i]);
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public boolean isEqual(boolean[] a, boolean[] b) {
+            return Arrays.equals(a, b);
+        }
+    };
+
+    static final ValueCodec<String[]> STRING_ARRAY = new ArrayCodec<>("StringArray") {
+        @Override
+        String[] fromArray(JSONArray array) {
+            String[] values = new String[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.getString(i);
+            }
+            return values;
+        }
+
+        @Override
+        public Object toJson(String[] value) {
+            JSONArray array = new JSONArray();
+            for (String v : value) {
+                array.put(v);
+            }
+            return array;
+        }
+
+        @Override
+        public String[] parse(String text) {
+            return splitArray(text);
+        }
+
+        @Override
+        public String format(String[] value) {
+            return String.join(ARRAY_SEPARATOR, value);
+        }
+
+        @Override
+        public boolean isEqual(String[] a, String[] b) {
+            return Arrays.equals(a, b);
+        }
+    };
+
+    static final ValueCodec<Translation2d> TRANSLATION_2D = new ArrayCodec<>("Translation2d") {
+        @Override
+        Translation2d fromArray(JSONArray array) {
+            return new Translation2d(array.getDouble(0), array.getDouble(1));
+        }
+
+        @Override
+        public Object toJson(Translation2d value) {
+            return new JSONArray().put(value.getX()).put(value.getY());
+        }
+
+        @Override
+        public Translation2d parse(String text) {
+            String[] split = splitArray(text);
+            if (split.length != 2)
+                throw new IllegalArgumentException("Expected x" + ARRAY_SEPARATOR + "y but got " + text);
+            return new Translation2d(Double.parseDouble(split[0]), Double.parseDouble(split[1]));
+        }
+
+        @Override
+        public String format(Translation2d value) {
+            return value.getX() + ARRAY_SEPARATOR + value.getY();
+        }
+
+        @Override
+        public boolean isEqual(Translation2d a, Translation2d b) {
+            return doublesEqual(a.getX(), b.getX()) && doublesEqual(a.getY(), b.getY());
+        }
+    };
+
+    /**
+     * Separates array elements in the text sent to and from the tuning GUI, since
+     * commas are reserved by the NT protocol
+     */
+    static final String ARRAY_SEPARATOR = ";";
+
+    static {
+        codecs.put(Double.class, DOUBLE);
+        codecs.put(Float.class, FLOAT);
+        codecs.put(Integer.class, INTEGER);
+        codecs.put(Long.class, LONG);
+        codecs.put(Short.class, SHORT);
+        codecs.put(Boolean.class, BOOLEAN);
+        codecs.put(String.class, STRING);
+        codecs.put(double[].class, DOUBLE_ARRAY);
+        codecs.put(int[].class, INT_ARRAY);
+        codecs.put(boolean[].class, BOOLEAN_ARRAY);
+        codecs.put(String[].class, STRING_ARRAY);
+        codecs.put(Translation2d.class, TRANSLATION_2D);
+    }
+
+    /**
+     * Registers a codec for the given type, replacing any existing codec
+     *
+     * @param <T>   The type of value
+     * @param type  The class of the type
+     * @param codec The codec to use for the type
+     */
+    static <T> void register(Class<T> type, ValueCodec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    /**
+     * Finds the codec for the type of the given value
+     *
+     * @param <T>   The type of value
+     * @param value The value (usually the default value of a parameter)
+     * @return The codec for the value
+     * @throws IllegalArgumentException If no codec exists for the type
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <T> ValueCodec<T> resolve(T value) {
+        if (value == null)
+            throw new IllegalArgumentException("Default value must not be null");
+        Class<?> type = value.getClass();
+        ValueCodec<?> codec = codecs.get(type);
+        if (codec != null)
+            return (ValueCodec<T>) codec;
+        if (value instanceof Enum)
+            return (ValueCodec<T>) new EnumCodec(((Enum<?>) value).getDeclaringClass());
+        if (value instanceof Measure)
+            return (ValueCodec<T>) new MeasureCodec<>(((Measure<?>) value).unit());
+        for (Map.Entry<Class<?>, ValueCodec<?>> entry : codecs.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type))
+                return (ValueCodec<T>) entry.getValue();
+        }
+        throw new IllegalArgumentException("No codec registered for type " + type.getName()
+                + ", register one with OxConfig.registerCodec()");
+    }
+
+    /**
+     * Compares two doubles using the OxConfig float tolerance
+     */
+    static boolean doublesEqual(double a, double b) {
+        return Double.compare(a, b) == 0 || Math.abs(a - b) <= OxConfig.floatTolerance;
+    }
+
+    /**
+     * Reads a JSON value as a primitive double without boxing
+     */
+    static double decodeDouble(Object json) {
+        if (json instanceof Number)
+            return ((Number) json).doubleValue();
+        return Double.parseDouble(json.toString());
+    }
+
+    /**
+     * Reads a JSON value as a primitive int without boxing
+     */
+    static int decodeInt(Object json) {
+        if (json instanceof Number)
+            return (int) wholeNumber((Number) json, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return Integer.parseInt(json.toString());
+    }
+
+    /**
+     * Reads a JSON number as a whole number, rejecting fractions and numbers out
+     * of range instead of truncating them
+     *
+     * @throws NumberFormatException If the number isn't a whole number in range
+     */
+    static long wholeNumber(Number number, long min, long max) {
+        long value;
+        if (number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte) {
+            value = number.longValue();
+        } else if (number instanceof BigDecimal || number instanceof BigInteger) {
+            // Exact, since a double can't hold every long
+            BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number
+                    : new BigDecimal((BigInteger) number);
+            if (decimal.signum() != 0 && decimal.stripTrailingZeros().scale() > 0)
+                throw new NumberFormatException("Expected a whole number but got " + number);
+            if (decimal.compareTo(BigDecimal.valueOf(min)) < 0 || decimal.compareTo(BigDecimal.valueOf(max)) > 0)
+                throw new NumberFormatException("Number out of range: " + number);
+            value = decimal.longValue();
+        } else {
+            double decimal = number.doubleValue();
+            if (decimal != Math.rint(decimal))
+                throw new NumberFormatException("Expected a whole number but got " + number);
+            if (decimal < min || decimal > max)
+                throw new NumberFormatException("Number out of range: " + number);
+            value = (long) decimal;
+        }
+        if (value < min || value > max)
+            throw new NumberFormatException("Number out of range: " + number);
+        return value;
+    }
+
+    /**
+     * Reads a JSON value as a primitive boolean without boxing
+     */
+    static boolean decodeBoolean(Object json) {
+        if (json instanceof Boolean)
+            return (Boolean) json;
+        return Boolean.parseBoolean(json.toString());
+    }
+
+    private static String[] splitArray(String text) {
+        if (text.isEmpty())
+            return new String[0];
+        String[] split = text.split(ARRAY_SEPARATOR, -1);
+        for (int i = 0; i < split.length; i++) {
+            split[i] = split[i].trim();
+        }
+        return split;
+    }
+
+    /**
+     * Base for numeric codecs, which are stored as JSON numbers
+     */
+    private abstract static class NumberCodec<T extends Number> implements ValueCodec<T> {
+        private final String typeName;
+
+        NumberCodec(String typeName) {
+            this.typeName = typeName;
+        }
+
+        abstract T fromNumber(Number number);
+
+        @Override
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @Override
+        public T fromJson(Object json) {
+            if (json instanceof Number)
+                return fromNumber((Number) json);
+            return parse(json.toString());
+        }
+
+        @Override
+        public Object toJson(T value) {
+            return value;
+        }
+    }
+
+    /**
+     * Base for codecs stored as JSON arrays
+     */
+    private abstract static class ArrayCodec<T> implements ValueCodec<T> {
+        private final String typeName;
+
+        ArrayCodec(String typeName) {
+            this.typeName = typeName;
+        }
+
+        abstract T fromArray(JSONArray array);
+
+        @Override
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @Override
+        public T fromJson(Object json) {
+            if (json instanceof JSONArray)
+                return fromArray((JSONArray) json);
+            return parse(json.toString());
+        }
+    }
+
+    /**
+     * Stores enums by their constant name
+     */
+    private static class EnumCodec<E extends Enum<E>> implements ValueCodec<E> {
+        private final Class<E> type;
+
+        EnumCodec(Class<E> type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getTypeName() {
+            return type.getSimpleName();
+        }
+
+        @Override
+        public E fromJson(Object json) {
+            return parse(json.toString());
+        }
+
+        @Override
+        public Object toJson(E value) {
+            return value.name();
+        }
+
+        @Override
+        public E parse(String text) {
+            return Enum.valueOf(type, text);
+        }
+
+        @Override
+        public String format(E value) {
+            return value.name();
+        }
+    }
+
+    /**
+     * Stores WPILib measures as a plain number in the unit of the default value
+     */
+    private static class MeasureCodec<U extends Unit> implements ValueCodec<Measure<U>> {
+        private final U unit;
+
+        MeasureCodec(U unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public String getTypeName() {
+            return "Double";
+        }
+
+        @Override
+        public Measure<U> fromJson(Object json) {
+            if (json instanceof Number)
+                return of(((Number) json).doubleValue());
+            return parse(json.toString());
+        }
+
+        @Override
+        public Object toJson(Measure<U> value) {
+            return inUnit(value);
+        }
+
+        @Override
+        public Measure<U> parse(String text) {
+            return of(Double.parseDouble(text));
+        }
+
+        @Override
+        public String format(Measure<U> value) {
+            return String.valueOf(inUnit(value));
+        }
+
+        @Override
+        public boolean isEqual(Measure<U> a, Measure<U> b) {
+            return doublesEqual(inUnit(a), inUnit(b));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Measure<U> of(double magnitude) {
+            // Unit.of() always returns a measure of that unit
+            return (Measure<U>) unit.of(magnitude);
+        }
+
+        private double inUnit(Measure<U> value) {
+            if (value.unit() == unit)
+                return value.magnitude();
+            return unit.fromBaseUnits(value.baseUnitMagnitude());
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package me.nabdev.oxconfig.sampleClasses;
 
 import java.util.List;
+import java.util.Set;
 
 import me.nabdev.oxconfig.ConfigurableClass;
+import me.nabdev.oxconfig.ConfigurableClassDouble;
 import me.nabdev.oxconfig.ConfigurableClassParam;
+import me.nabdev.oxconfig.ConfigurableClassSnapshot;
 import me.nabdev.oxconfig.OxConfig;
 
 /**
@@ -12,17 +15,15 @@ import me.nabdev.oxconfig.OxConfig;
  * competition use.
  */
 public class ConfigurableLinearInterpolation implements ConfigurableClass {
-    private ConfigurableClassParam<Double> x1 = new ConfigurableClassParam<Double>(this, 0.0, (x) -> {
-    }, "x1");
-    private ConfigurableClassParam<Double> y1 = new ConfigurableClassParam<Double>(this, 0.0, (x) -> {
-    }, "y1");
-    private ConfigurableClassParam<Double> x2 = new ConfigurableClassParam<Double>(this, 0.0, (x) -> {
-    }, "x2");
-    private ConfigurableClassParam<Double> y2 = new ConfigurableClassParam<Double>(this, 0.0, (x) -> {
-    }, "y2");
+    private ConfigurableClassDouble x1 = new ConfigurableClassDouble(this, 0.0, "x1");
+    private ConfigurableClassDouble y1 = new ConfigurableClassDouble(this, 0.0, "y1");
+    private ConfigurableClassDouble x2 = new ConfigurableClassDouble(this, 0.0, "x2");
+    private ConfigurableClassDouble y2 = new ConfigurableClassDouble(this, 0.0, "y2");
     private String key;
     private String prettyName;
     private final List<ConfigurableClassParam<?>> params = List.of(x1, y1, x2, y2);
+    // Read all points from the same reload, so x1 and x2 can never be mismatched
+    private volatile ConfigurableClassSnapshot snapshot;
 
     /**
      * Allocates a ConfigurableLinearInterpolation and registers it to OxConfig
@@ -33,7 +34,12 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
         this.key = key;
         this.prettyName = key;
         OxConfig.registerConfigurableClass(this);
+        snapshot = OxConfig.getSnapshot(this);
+    }
 
+    @Override
+    public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+        snapshot = OxConfig.getSnapshot(this);
     }
 
     @Override
@@ -58,7 +64,10 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
      * @return The y value of the linear interpolation function at the given x
      */
     public double calculate(double x) {
-        return y1.get() + (y2.get() - y1.get()) * (x - x1.get()) / (x2.get() - x1.get());
+        ConfigurableClassSnapshot points = snapshot;
+        double x1Val = points.getDouble(x1);
+        double y1Val = points.getDouble(y1);
+        return y1Val + (points.getDouble(y2) - y1Val) * (x - x1Val) / (points.getDouble(x2) - x1Val);
     }
 
     /**
@@ -67,7 +76,7 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
      * @return The y1 value
      */
     public double getY1() {
-        return y1.get();
+        return y1.getAsDouble();
     }
 
     /**
@@ -76,7 +85,7 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
      * @return The y2 value
      */
     public double getY2() {
-        return y2.get();
+        return y2.getAsDouble();
     }
 
     /**
@@ -85,7 +94,7 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
      * @return The x1 value
      */
     public double getX1() {
-        return x1.get();
+        return x1.getAsDouble();
     }
 
     /**
@@ -94,6 +103,6 @@ public class ConfigurableLinearInterpolation implements ConfigurableClass {
      * @return The x2 value
      */
     public double getX2() {
-        return x2.get();
+        return x2.getAsDouble();
     }
 }
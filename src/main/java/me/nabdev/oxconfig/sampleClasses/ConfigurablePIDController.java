@@ -4,6 +4,7 @@ import java.util.List;
 
 import edu.wpi.first.math.controller.PIDController;
 import me.nabdev.oxconfig.ConfigurableClass;
+import me.nabdev.oxconfig.ConfigurableClassDouble;
 import me.nabdev.oxconfig.ConfigurableClassParam;
 import me.nabdev.oxconfig.OxConfig;
 
@@ -13,9 +14,9 @@ import me.nabdev.oxconfig.OxConfig;
  * competition use.
  */
 public class ConfigurablePIDController extends PIDController implements ConfigurableClass {
-    private ConfigurableClassParam<Double> kpParam = new ConfigurableClassParam<>(this, 0.0, this::setP, "P");
-    private ConfigurableClassParam<Double> kiParam = new ConfigurableClassParam<>(this, 0.0, this::setI, "I");
-    private ConfigurableClassParam<Double> kdParam = new ConfigurableClassParam<>(this, 0.0, this::setD, "D");
+    private ConfigurableClassDouble kpParam = new ConfigurableClassDouble(this, 0.0, this::setP, "P");
+    private ConfigurableClassDouble kiParam = new ConfigurableClassDouble(this, 0.0, this::setI, "I");
+    private ConfigurableClassDouble kdParam = new ConfigurableClassDouble(this, 0.0, this::setD, "D");
     private String key;
     private String prettyName;
     private final List<ConfigurableClassParam<?>> params = List.of(kpParam, kiParam, kdParam);
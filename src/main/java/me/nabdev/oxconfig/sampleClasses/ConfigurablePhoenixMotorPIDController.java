@@ -1,10 +1,12 @@
 package me.nabdev.oxconfig.sampleClasses;
 
 import java.util.List;
+import java.util.Set;
 
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 
 import me.nabdev.oxconfig.ConfigurableClass;
+import me.nabdev.oxconfig.ConfigurableClassDouble;
 import me.nabdev.oxconfig.ConfigurableClassParam;
 import me.nabdev.oxconfig.OxConfig;
 
@@ -14,12 +16,11 @@ import me.nabdev.oxconfig.OxConfig;
  * is safe for competition use.
  */
 public class ConfigurablePhoenixMotorPIDController implements ConfigurableClass {
-    private ConfigurableClassParam<Double> kpParam = new ConfigurableClassParam<>(this, 0.0, this::setP, "P");
-    private ConfigurableClassParam<Double> kiParam = new ConfigurableClassParam<>(this, 0.0, this::setI, "I");
-    private ConfigurableClassParam<Double> kdParam = new ConfigurableClassParam<>(this, 0.0, this::setD, "D");
-    private ConfigurableClassParam<Double> iZoneParam = new ConfigurableClassParam<>(this, 0.0, this::setIZone,
-            "IZone");
-    private ConfigurableClassParam<Double> FFParam = new ConfigurableClassParam<>(this, 0.0, this::setFF, "FF");
+    private ConfigurableClassDouble kpParam = new ConfigurableClassDouble(this, 0.0, "P");
+    private ConfigurableClassDouble kiParam = new ConfigurableClassDouble(this, 0.0, "I");
+    private ConfigurableClassDouble kdParam = new ConfigurableClassDouble(this, 0.0, "D");
+    private ConfigurableClassDouble iZoneParam = new ConfigurableClassDouble(this, 0.0, "IZone");
+    private ConfigurableClassDouble FFParam = new ConfigurableClassDouble(this, 0.0, "FF");
 
     private final List<ConfigurableClassParam<?>> params = List.of(kpParam, kiParam, kdParam, iZoneParam, FFParam);
 
@@ -76,6 +77,21 @@ public class ConfigurablePhoenixMotorPIDController implements ConfigurableClass
         motorController.config_kF(0, FF);
     }
 
+    @Override
+    public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+        // Only send the gains that actually changed to the motor controller
+        if (changed.contains(kpParam))
+            setP(kpParam.getAsDouble());
+        if (changed.contains(kiParam))
+            setI(kiParam.getAsDouble());
+        if (changed.contains(kdParam))
+            setD(kdParam.getAsDouble());
+        if (changed.contains(iZoneParam))
+            setIZone(iZoneParam.getAsDouble());
+        if (changed.contains(FFParam))
+            setFF(FFParam.getAsDouble());
+    }
+
     @Override
     public List<ConfigurableClassParam<?>> getParameters() {
         return params;
@@ -1,10 +1,12 @@
 package me.nabdev.oxconfig.sampleClasses;
 
 import java.util.List;
+import java.util.Set;
 
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import me.nabdev.oxconfig.ConfigurableClass;
+import me.nabdev.oxconfig.ConfigurableClassDouble;
 import me.nabdev.oxconfig.ConfigurableClassParam;
 import me.nabdev.oxconfig.OxConfig;
 
@@ -14,9 +16,9 @@ import me.nabdev.oxconfig.OxConfig;
  * competition use.
  */
 public class ConfigurableProfiledPIDController extends ProfiledPIDController implements ConfigurableClass {
-    private ConfigurableClassParam<Double> kpParam = new ConfigurableClassParam<>(this, 0.0, this::setP, "P");
-    private ConfigurableClassParam<Double> kiParam = new ConfigurableClassParam<>(this, 0.0, this::setI, "I");
-    private ConfigurableClassParam<Double> kdParam = new ConfigurableClassParam<>(this, 0.0, this::setD, "D");
+    private ConfigurableClassDouble kpParam = new ConfigurableClassDouble(this, 0.0, "P");
+    private ConfigurableClassDouble kiParam = new ConfigurableClassDouble(this, 0.0, "I");
+    private ConfigurableClassDouble kdParam = new ConfigurableClassDouble(this, 0.0, "D");
     private String key;
     private String prettyName;
     private final List<ConfigurableClassParam<?>> params = List.of(kpParam, kiParam, kdParam);
@@ -63,6 +65,11 @@ public class ConfigurableProfiledPIDController extends ProfiledPIDController imp
         OxConfig.registerConfigurableClass(this);
     }
 
+    @Override
+    public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+        setPID(kpParam.getAsDouble(), kiParam.getAsDouble(), kdParam.getAsDouble());
+    }
+
     @Override
     public List<ConfigurableClassParam<?>> getParameters() {
         return params;
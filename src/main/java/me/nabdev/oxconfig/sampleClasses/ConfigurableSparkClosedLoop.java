@@ -1,6 +1,7 @@
 package me.nabdev.oxconfig.sampleClasses;
 
 import java.util.List;
+import java.util.Set;
 
 import com.revrobotics.spark.SparkBase;
 import com.revrobotics.spark.SparkBase.PersistMode;
@@ -11,6 +12,7 @@ import com.revrobotics.spark.config.SparkBaseConfig;
 import com.revrobotics.spark.config.SparkBaseConfigAccessor;
 
 import me.nabdev.oxconfig.ConfigurableClass;
+import me.nabdev.oxconfig.ConfigurableClassDouble;
 import me.nabdev.oxconfig.ConfigurableClassParam;
 import me.nabdev.oxconfig.OxConfig;
 
@@ -20,16 +22,17 @@ import me.nabdev.oxconfig.OxConfig;
  * is safe for competition use.
  */
 public class ConfigurableSparkClosedLoop implements ConfigurableClass {
-    private ConfigurableClassParam<Double> kpParam;
-    private ConfigurableClassParam<Double> kiParam;
-    private ConfigurableClassParam<Double> kdParam;
-    private ConfigurableClassParam<Double> iZoneParam;
-    private ConfigurableClassParam<Double> FFParam;
-    private ConfigurableClassParam<Double> minParam;
-    private ConfigurableClassParam<Double> maxParam;
+    private ConfigurableClassDouble kpParam;
+    private ConfigurableClassDouble kiParam;
+    private ConfigurableClassDouble kdParam;
+    private ConfigurableClassDouble iZoneParam;
+    private ConfigurableClassDouble FFParam;
+    private ConfigurableClassDouble minParam;
+    private ConfigurableClassDouble maxParam;
 
     private List<ConfigurableClassParam<?>> params;
 
+    private SparkBase controller;
     private SparkBaseConfig sparkConfig;
     private ClosedLoopConfig myConfig;
 
@@ -79,38 +82,18 @@ public class ConfigurableSparkClosedLoop implements ConfigurableClass {
         this.key = key;
         this.prettyName = prettyName;
         this.sparkConfig = config;
+        this.controller = controller;
         this.myConfig = sparkConfig.closedLoop;
 
         ClosedLoopConfigAccessor closedLoop = accessor.closedLoop;
 
-        kpParam = new ConfigurableClassParam<>(this, closedLoop.getP(), (Double val) -> {
-            myConfig.p(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "P");
-        kiParam = new ConfigurableClassParam<>(this, closedLoop.getI(), (Double val) -> {
-            myConfig.i(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "I");
-        kdParam = new ConfigurableClassParam<>(this, closedLoop.getD(), (Double val) -> {
-            myConfig.d(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "D");
-        iZoneParam = new ConfigurableClassParam<>(this, closedLoop.getIZone(), (Double val) -> {
-            myConfig.iZone(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "IZone");
-        FFParam = new ConfigurableClassParam<>(this, closedLoop.getFF(), (Double val) -> {
-            myConfig.velocityFF(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "FF");
-        minParam = new ConfigurableClassParam<>(this, closedLoop.getMinOutput(), (Double val) -> {
-            myConfig.minOutput(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "Min");
-        maxParam = new ConfigurableClassParam<>(this, closedLoop.getMaxOutput(), (Double val) -> {
-            myConfig.maxOutput(val);
-            controller.configure(config, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        }, "Max");
+        kpParam = new ConfigurableClassDouble(this, closedLoop.getP(), myConfig::p, "P");
+        kiParam = new ConfigurableClassDouble(this, closedLoop.getI(), myConfig::i, "I");
+        kdParam = new ConfigurableClassDouble(this, closedLoop.getD(), myConfig::d, "D");
+        iZoneParam = new ConfigurableClassDouble(this, closedLoop.getIZone(), myConfig::iZone, "IZone");
+        FFParam = new ConfigurableClassDouble(this, closedLoop.getFF(), myConfig::velocityFF, "FF");
+        minParam = new ConfigurableClassDouble(this, closedLoop.getMinOutput(), myConfig::minOutput, "Min");
+        maxParam = new ConfigurableClassDouble(this, closedLoop.getMaxOutput(), myConfig::maxOutput, "Max");
 
         params = List.of(kpParam, kiParam, kdParam, iZoneParam, FFParam, minParam, maxParam);
         OxConfig.registerConfigurableClass(this);
@@ -130,4 +113,11 @@ public class ConfigurableSparkClosedLoop implements ConfigurableClass {
     public String getPrettyName() {
         return prettyName;
     }
+
+    @Override
+    public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+        // The individual setters only update the config object, push it to the
+        // controller once for all changed parameters
+        controller.configure(sparkConfig, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+    }
 }
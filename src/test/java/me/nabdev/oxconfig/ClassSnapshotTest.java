@@ -0,0 +1,135 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the snapshot of a ConfigurableClass holds the values of one
+ * reload, and is only replaced once the class committed the next
+ */
+class ClassSnapshotTest {
+    private static final String mode = "competition";
+    private static final String config = "{\"mode\": \"competition\", \"competition\": {\"snap/double\": 1.5, "
+            + "\"snap/int\": 2, \"snap/boolean\": true, \"snap/string\": \"b\"}}";
+    private TestClass testClass;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-snapshot-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        testClass = new TestClass("snap");
+        OxConfig.registerPendingKeys();
+        ConfigTable.load(config, mode);
+    }
+
+    @Test
+    void capturesTheDefaultsBeforeTheFirstReload() {
+        ConfigurableClassSnapshot snapshot = OxConfig.getSnapshot(testClass);
+        assertEquals(0.0, snapshot.getDouble(testClass.doubleParam));
+        assertEquals(0, snapshot.getInt(testClass.intParam));
+        assertFalse(snapshot.getBoolean(testClass.booleanParam));
+        assertEquals("a", snapshot.get(testClass.stringParam));
+    }
+
+    @Test
+    void publishesTheValuesOfAReload() {
+        OxConfig.reloadConfig();
+        ConfigurableClassSnapshot snapshot = OxConfig.getSnapshot(testClass);
+        assertEquals(1.5, snapshot.getDouble(testClass.doubleParam));
+        assertEquals(2, snapshot.getInt(testClass.intParam));
+        assertTrue(snapshot.getBoolean(testClass.booleanParam));
+        assertEquals("b", snapshot.get(testClass.stringParam));
+        assertEquals(Double.valueOf(1.5), snapshot.get(testClass.doubleParam));
+    }
+
+    @Test
+    void keepsOldSnapshotsUnchanged() {
+        OxConfig.reloadConfig();
+        ConfigurableClassSnapshot before = OxConfig.getSnapshot(testClass);
+        JsonUtils.modifyValue(mode, "snap/double", 3.5);
+        JsonUtils.modifyValue(mode, "snap/string", "c");
+        OxConfig.reloadConfig();
+
+        ConfigurableClassSnapshot after = OxConfig.getSnapshot(testClass);
+        assertNotSame(before, after);
+        assertEquals(1.5, before.getDouble(testClass.doubleParam));
+        assertEquals("b", before.get(testClass.stringParam));
+        assertEquals(3.5, after.getDouble(testClass.doubleParam));
+        assertEquals("c", after.get(testClass.stringParam));
+        // Nothing changed, so nothing is committed or published
+        OxConfig.reloadConfig();
+        assertSame(after, OxConfig.getSnapshot(testClass));
+    }
+
+    @Test
+    void keepsTheSnapshotOfAFailedCommit() {
+        OxConfig.reloadConfig();
+        ConfigurableClassSnapshot before = OxConfig.getSnapshot(testClass);
+        testClass.failCommit = true;
+        JsonUtils.modifyValue(mode, "snap/int", 7);
+        OxConfig.reloadConfig();
+
+        assertEquals(7, testClass.intParam.getAsInt());
+        assertSame(before, OxConfig.getSnapshot(testClass));
+    }
+
+    @Test
+    void rejectsParametersOfOtherClasses() {
+        ConfigurableClassSnapshot snapshot = OxConfig.getSnapshot(testClass);
+        TestClass other = new TestClass("other");
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getDouble(other.doubleParam));
+    }
+
+    /**
+     * A class with a parameter of each primitive type and a string
+     */
+    private static class TestClass implements ConfigurableClass {
+        private final ConfigurableClassDouble doubleParam = new ConfigurableClassDouble(this, 0, "double");
+        private final ConfigurableClassInt intParam = new ConfigurableClassInt(this, 0, "int");
+        private final ConfigurableClassBoolean booleanParam = new ConfigurableClassBoolean(this, false, "boolean");
+        private final ConfigurableClassParam<String> stringParam = new ConfigurableClassParam<>(this, "a", "string");
+        private final String key;
+        private boolean failCommit = false;
+
+        TestClass(String key) {
+            this.key = key;
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return List.of(doubleParam, intParam, booleanParam, stringParam);
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+            if (failCommit)
+                throw new IllegalStateException("Commit failed");
+        }
+    }
+}
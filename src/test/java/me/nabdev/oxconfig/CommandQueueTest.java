@@ -0,0 +1,94 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the queue that carries commands from the NT listeners and robot code
+ * to the OxConfig thread
+ */
+class CommandQueueTest {
+    private final List<Integer> ran = new ArrayList<>();
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-queue-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        new ConfigurableDouble(0, "queue/value");
+        OxConfig.registerPendingKeys();
+        ConfigTable.load("{\"competition\": {\"queue/value\": 1}}", "competition");
+        ConfigTable.commit();
+    }
+
+    private boolean queue(int command) {
+        return OxConfig.queueCommand(() -> ran.add(command));
+    }
+
+    @Test
+    void runsCommandsInOrder() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue(i));
+        }
+        assertEquals(5, OxConfig.runQueuedCommands());
+        assertEquals(List.of(0, 1, 2, 3, 4), ran);
+        assertEquals(0, OxConfig.runQueuedCommands());
+    }
+
+    @Test
+    void dropsCommandsWhenFull() {
+        for (int i = 0; i < OxConfig.commandQueueCapacity; i++) {
+            assertTrue(queue(i));
+        }
+        assertFalse(queue(-1));
+        assertEquals(OxConfig.commandQueueCapacity, OxConfig.runQueuedCommands());
+        assertFalse(ran.contains(-1));
+        // Running the queue frees it up again
+        assertTrue(queue(-1));
+    }
+
+    @Test
+    void keepsRunningAfterACommandFails() {
+        queue(0);
+        OxConfig.queueCommand(() -> {
+            throw new IllegalStateException("Command failed");
+        });
+        queue(2);
+        assertEquals(3, OxConfig.runQueuedCommands());
+        assertEquals(List.of(0, 2), ran);
+    }
+
+    @Test
+    void commitsWhatEachCommandChanged() {
+        long before = ConfigTable.latestVersion();
+        OxConfig.queueCommand(() -> JsonUtils.modifyValue("competition", "queue/value", 2.0));
+        OxConfig.runQueuedCommands();
+        assertTrue(ConfigTable.latestVersion() > before);
+        assertEquals(2.0, ConfigTable.get(0, ConfigTable.idOf("queue/value")));
+    }
+
+    @Test
+    void forgetsQueuedCommandsOnReset() {
+        queue(0);
+        OxConfig.reset();
+        assertEquals(0, OxConfig.runQueuedCommands());
+        for (int i = 0; i < OxConfig.commandQueueCapacity; i++) {
+            assertTrue(queue(i));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the commands sent on the OxConfig/Commands topic, which apply a whole
+ * batch of edits or none of them
+ */
+class CommandTest {
+    private static final String config = "{\"mode\": \"competition\", "
+            + "\"competition\": {\"cmd/speed\": 1, \"cmd/name\": \"a\"}, "
+            + "\"presentation\": {\"cmd/speed\": 2, \"cmd/name\": \"b\"}}";
+    private final List<String> names = new ArrayList<>();
+    private ConfigurableDouble speed;
+    private int speedId;
+    private int nameId;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-command-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        speed = new ConfigurableDouble(0, "cmd/speed");
+        new ConfigurableParameter<>("", "cmd/name", names::add);
+        OxConfig.registerPendingKeys();
+        speedId = ConfigTable.idOf("cmd/speed");
+        nameId = ConfigTable.idOf("cmd/name");
+        ConfigTable.load(config, "competition");
+        OxConfig.reloadConfig();
+        ConfigTable.commit();
+        names.clear();
+    }
+
+    private static void apply(String command) {
+        OxConfig.applyCommand(new JSONObject(command));
+        ConfigTable.commit();
+    }
+
+    @Test
+    void setsManyKeysInManyModes() {
+        apply("{\"type\": \"set\", \"edits\": ["
+                + "{\"key\": \"cmd/speed\", \"values\": {\"competition\": 3.5, \"presentation\": 4}},"
+                + "{\"key\": \"cmd/name\", \"values\": {\"competition\": \"x, y\"}, \"comment\": \"commas\"}]}");
+        assertEquals(3.5, ConfigTable.get(0, speedId));
+        assertEquals(4.0, ConfigTable.get(1, speedId));
+        assertEquals("x, y", ConfigTable.get(0, nameId));
+        assertEquals("commas", ConfigTable.getComment(0, nameId));
+        // The setters of the current mode ran
+        assertEquals(3.5, speed.getAsDouble());
+        assertEquals(List.of("x, y"), names);
+    }
+
+    @Test
+    void rejectsTheWholeBatchIfAnEditIsInvalid() {
+        long version = ConfigTable.latestVersion();
+        String[] invalid = {
+                "{\"key\": \"cmd/missing\", \"values\": {\"competition\": 1}}",
+                "{\"key\": \"cmd/speed\", \"values\": {\"nowhere\": 1}}",
+                "{\"key\": \"cmd/speed\", \"values\": {\"competition\": \"fast\"}}",
+                "{\"key\": \"root/mode\", \"values\": {\"competition\": \"presentation\"}}",
+        };
+        for (String edit : invalid) {
+            String command = "{\"type\": \"set\", \"edits\": ["
+                    + "{\"key\": \"cmd/name\", \"values\": {\"competition\": \"changed\"}}, " + edit + "]}";
+            assertThrows(RuntimeException.class, () -> apply(command), edit);
+        }
+        assertEquals(version, ConfigTable.latestVersion());
+        assertEquals("a", ConfigTable.get(0, nameId));
+        assertEquals(List.of(), names);
+    }
+
+    @Test
+    void copiesModes() {
+        apply("{\"type\": \"copy\", \"source\": \"presentation\", \"dest\": \"competition\"}");
+        assertEquals(2, ConfigTable.get(0, speedId));
+        assertEquals("b", ConfigTable.get(0, nameId));
+        assertEquals(2.0, speed.getAsDouble());
+        assertEquals(List.of("b"), names);
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"type\": \"copy\", \"source\": \"presentation\", \"dest\": \"nowhere\"}"));
+        assertThrows(IllegalArgumentException.class, () -> apply(
+                "{\"type\": \"copy\", \"source\": \"presentation\", \"dest\": \"competition\", \"class\": \"none\"}"));
+    }
+
+    @Test
+    void undoesTheLastCommand() {
+        apply("{\"type\": \"set\", \"edits\": [{\"key\": \"cmd/speed\", \"values\": {\"competition\": 5}}]}");
+        assertEquals(5.0, speed.getAsDouble());
+        long edited = ConfigTable.latestVersion();
+        apply("{\"type\": \"undo\"}");
+        assertEquals(1, ConfigTable.get(0, speedId));
+        assertEquals(1.0, speed.getAsDouble());
+        assertArrayEquals(new int[] { speedId }, ConfigTable.changedSince(edited));
+    }
+
+    @Test
+    void rejectsUnknownCommands() {
+        assertThrows(IllegalArgumentException.class, () -> apply("{\"type\": \"explode\"}"));
+        assertThrows(IllegalArgumentException.class, () -> apply("{\"type\": \"mode\", \"mode\": \"nowhere\"}"));
+    }
+}
@@ -0,0 +1,152 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a ConfigCache loads back exactly what the config file holds, and
+ * that a cache that doesn't match is ignored
+ */
+class ConfigCacheTest {
+    private static final String[] modes = { "a", "b", "c" };
+    private static final String config = "{\"mode\": \"a\", \"extra\": [1, {\"x\": null}], "
+            + "\"a\": {\"cache/double\": {\"comment\": \"tuned\", \"value\": 2.5}, \"cache/int\": 3000000000,"
+            + " \"unknown/key\": {\"nested\": \"\\u0041\"}, \"cache/big\": 100000000000000000000}, "
+            + "\"b\": {\"cache/double\": 5, \"cache/list\": {\"value\": [1, 2.5, \"s\"], \"comment\": \"c\"}}, "
+            + "\"c\": {\"cache/double\": -1, \"cache/int\": true}}";
+    private static Path dir;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        dir = Files.createTempDirectory("oxconfig-cache-test");
+        OxConfig.setConfigPath(dir.resolve("config.json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        ModeSelector.modes = modes;
+        new ConfigurableDouble(0, "cache/double");
+        new ConfigurableParameter<>(0L, "cache/int");
+        new ConfigurableParameter<>(0L, "cache/big");
+        new ConfigurableParameter<>(new double[] { 1 }, "cache/list");
+        OxConfig.registerPendingKeys();
+        // Only the active mode is parsed, the others stay deferred
+        ConfigTable.load(config, "a");
+        // Parsed after loading, so the cache holds both parsed and deferred modes
+        ConfigTable.get(1, id("cache/double"));
+    }
+
+    private static int id(String key) {
+        return ConfigTable.idOf(key);
+    }
+
+    private static String writeJson() {
+        JsonWriter writer = new JsonWriter();
+        writer.reset(true);
+        ConfigTable.snapshot().write(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes the config and its cache
+     *
+     * @return The hash of the config file the cache was made from
+     */
+    private static long writeCache(Path cachePath) throws IOException {
+        JsonWriter writer = new JsonWriter();
+        writer.reset(true);
+        ConfigCache.Encoder encoder = new ConfigCache.Encoder();
+        ConfigTable.snapshot().write(writer, encoder);
+        ConfigCache.write(cachePath, writer.hash(), encoder);
+        return writer.hash();
+    }
+
+    @Test
+    void roundTripsTheConfig() throws IOException {
+        String before = writeJson();
+        Path cachePath = dir.resolve("roundtrip.cache");
+        long hash = writeCache(cachePath);
+
+        ConfigTable.load("{}");
+        assertTrue(ConfigCache.load(cachePath, hash));
+        assertEquals(before, writeJson());
+        assertEquals("tuned", ConfigTable.getComment(0, id("cache/double")));
+        assertEquals(-1, ConfigTable.get(2, id("cache/double")));
+    }
+
+    @Test
+    void keepsValueTypes() throws IOException {
+        Path cachePath = dir.resolve("types.cache");
+        long hash = writeCache(cachePath);
+        ConfigTable.load("{}");
+        assertTrue(ConfigCache.load(cachePath, hash));
+
+        assertEquals(new BigDecimal("2.5"), ConfigTable.get(0, id("cache/double")));
+        assertEquals(new BigInteger("100000000000000000000"), ConfigTable.get(0, id("cache/big")));
+        assertEquals(3000000000L, ConfigTable.get(0, id("cache/int")));
+        assertEquals(Integer.valueOf(5), ConfigTable.get(1, id("cache/double")));
+        JSONArray list = assertInstanceOf(JSONArray.class, ConfigTable.get(1, id("cache/list")));
+        assertEquals(1, list.get(0));
+        assertEquals(new BigDecimal("2.5"), list.get(1));
+        assertEquals("s", list.get(2));
+        assertEquals(Boolean.TRUE, ConfigTable.get(2, id("cache/int")));
+    }
+
+    @Test
+    void ignoresACacheOfAnotherConfig() throws IOException {
+        Path cachePath = dir.resolve("hash.cache");
+        long hash = writeCache(cachePath);
+        String before = writeJson();
+        assertFalse(ConfigCache.load(cachePath, hash + 1));
+        assertEquals(before, writeJson());
+    }
+
+    @Test
+    void ignoresACorruptCache() throws IOException {
+        Path cachePath = dir.resolve("valid.cache");
+        long hash = writeCache(cachePath);
+        byte[] valid = Files.readAllBytes(cachePath);
+        ConfigTable.load("{\"a\": {\"cache/double\": 9}}");
+        String before = writeJson();
+
+        // Every byte past the header is covered by the checksum
+        for (int i = 16; i < valid.length; i += 7) {
+            byte[] corrupt = valid.clone();
+            corrupt[i] ^= 0x10;
+            Path corruptPath = dir.resolve("corrupt" + i + ".cache");
+            Files.write(corruptPath, corrupt);
+            assertFalse(ConfigCache.load(corruptPath, hash), "flipped byte " + i);
+        }
+        Path truncatedPath = dir.resolve("truncated.cache");
+        Files.write(truncatedPath, Arrays.copyOf(valid, valid.length / 2));
+        assertFalse(ConfigCache.load(truncatedPath, hash));
+        assertEquals(before, writeJson());
+    }
+
+    @Test
+    void ignoresACacheOfOtherModes() throws IOException {
+        Path cachePath = dir.resolve("modes.cache");
+        long hash = writeCache(cachePath);
+        ModeSelector.modes = new String[] { "a", "b" };
+        assertFalse(ConfigCache.load(cachePath, hash));
+        ModeSelector.modes = modes;
+        assertTrue(ConfigCache.load(cachePath, hash));
+    }
+}
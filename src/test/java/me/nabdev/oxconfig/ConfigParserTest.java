@@ -0,0 +1,210 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests ConfigParser against a Sink that records what it is given
+ */
+class ConfigParserTest {
+    /**
+     * Records everything the parser reads. Modes "a" and "b" exist, "k" is a
+     * registered key and "c" a registered key that stores a comment.
+     */
+    private static class RecordingSink implements ConfigParser.Sink {
+        private final List<String> modes = Arrays.asList("a", "b");
+        private final List<String> keys = Arrays.asList("k", "c");
+        private final Map<String, Object> values = new HashMap<>();
+        private final Map<String, String> comments = new HashMap<>();
+        private final Map<String, String> unknown = new HashMap<>();
+        private final Map<String, String> deferred = new HashMap<>();
+        private String rootMode = null;
+        private String deferMode = null;
+
+        @Override
+        public int modeIndex(String mode) {
+            return modes.indexOf(mode);
+        }
+
+        @Override
+        public int idOf(String key) {
+            return keys.indexOf(key);
+        }
+
+        @Override
+        public boolean storesComment(int id) {
+            return keys.get(id).equals("c");
+        }
+
+        @Override
+        public void rootMode(String mode) {
+            rootMode = mode;
+        }
+
+        @Override
+        public boolean defer(int mode) {
+            return modes.get(mode).equals(deferMode);
+        }
+
+        @Override
+        public void deferred(int mode, String raw) {
+            deferred.put(modes.get(mode), raw);
+        }
+
+        @Override
+        public void value(int mode, int id, Object value, String comment) {
+            values.put(modes.get(mode) + "/" + keys.get(id), value);
+            comments.put(modes.get(mode) + "/" + keys.get(id), comment);
+        }
+
+        @Override
+        public void unknown(String mode, String key, String raw) {
+            unknown.put(mode == null ? key : mode + "/" + key, raw);
+        }
+    }
+
+    private static RecordingSink parse(String json) {
+        RecordingSink sink = new RecordingSink();
+        ConfigParser.parse(json, sink);
+        return sink;
+    }
+
+    private static Object valueOf(String json) {
+        return parse("{\"a\": {\"k\": " + json + "}}").values.get("a/k");
+    }
+
+    @Test
+    void decodesEscapes() {
+        assertEquals("q\"\\/\b\f\n\r\t", valueOf("\"q\\\"\\\\\\/\\b\\f\\n\\r\\t\""));
+        assertEquals("plain", valueOf("\"plain\""));
+    }
+
+    @Test
+    void decodesUnicodeEscapes() {
+        assertEquals("A\u00e9", valueOf("\"\\u0041\\u00E9\""));
+        // Characters outside the BMP are escaped as surrogate pairs
+        assertEquals("\ud83d\ude00", valueOf("\"\\ud83d\\ude00\""));
+        assertEquals("\ud83d\ude00", valueOf("\"\ud83d\ude00\""));
+    }
+
+    @Test
+    void rejectsInvalidUnicodeEscapes() {
+        assertThrows(JSONException.class, () -> valueOf("\"\\u00zz\""));
+        assertThrows(JSONException.class, () -> valueOf("\"\\u+041\""));
+        assertThrows(JSONException.class, () -> valueOf("\"\\u00"));
+    }
+
+    @Test
+    void allowsTrailingCommas() {
+        RecordingSink sink = parse("{\"a\": {\"k\": [1, 2,], \"u\": {\"x\": 1,},}, \"mode\": \"a\",}");
+        JSONArray array = assertInstanceOf(JSONArray.class, sink.values.get("a/k"));
+        assertEquals(2, array.length());
+        assertEquals(2, array.get(1));
+        assertEquals("{\"x\": 1,}", sink.unknown.get("a/u"));
+        assertEquals("a", sink.rootMode);
+    }
+
+    @Test
+    void decodesNumbersLikeOrgJson() {
+        assertEquals(Integer.valueOf(42), valueOf("42"));
+        assertEquals(Integer.valueOf(-7), valueOf("-7"));
+        assertEquals(Long.valueOf(3000000000L), valueOf("3000000000"));
+        // Decimals keep the text they were written as
+        assertEquals(new BigDecimal("1.5"), valueOf("1.5"));
+        assertEquals(new BigDecimal("-2e3"), valueOf("-2e3"));
+        assertEquals(new BigDecimal("5."), valueOf("5."));
+        assertEquals(Double.valueOf(-0.0), valueOf("-0"));
+        assertEquals(Double.valueOf(-0.0), valueOf("-0.0"));
+        // Too big for a long
+        assertEquals(new BigInteger("100000000000000000000"), valueOf("100000000000000000000"));
+    }
+
+    @Test
+    void readsCommentedAndPlainValues() {
+        RecordingSink sink = parse("{\"a\": {\"c\": {\"comment\": \"hi\", \"value\": 5}}, "
+                + "\"b\": {\"c\": 6, \"k\": {\"value\": 7, \"comment\": \"x\"}}}");
+        assertEquals(5, sink.values.get("a/c"));
+        assertEquals("hi", sink.comments.get("a/c"));
+        // A key that stores a comment may still be saved without one
+        assertEquals(6, sink.values.get("b/c"));
+        assertNull(sink.comments.get("b/c"));
+        // A key that doesn't store a comment keeps the whole object as its value
+        JSONObject object = assertInstanceOf(JSONObject.class, sink.values.get("b/k"));
+        assertEquals(7, object.get("value"));
+    }
+
+    @Test
+    void keepsUnknownKeysAsRawText() {
+        RecordingSink sink = parse("{\"a\": {\"other\": [true, null, \"s\"]}, \"extra\": {\"n\": -1.5e+3}}");
+        assertEquals("[true, null, \"s\"]", sink.unknown.get("a/other"));
+        assertEquals("{\"n\": -1.5e+3}", sink.unknown.get("extra"));
+    }
+
+    @Test
+    void defersModes() {
+        RecordingSink sink = new RecordingSink();
+        sink.deferMode = "b";
+        ConfigParser.parse("{\"a\": {\"k\": 1}, \"b\": {\"k\": 2, \"u\": \"\\u0041\"}}", sink);
+        assertEquals(1, sink.values.get("a/k"));
+        assertNull(sink.values.get("b/k"));
+        assertEquals("{\"k\": 2, \"u\": \"\\u0041\"}", sink.deferred.get("b"));
+
+        RecordingSink parsed = new RecordingSink();
+        ConfigParser.parseMode(sink.deferred.get("b"), "b", 1, parsed);
+        assertEquals(2, parsed.values.get("b/k"));
+    }
+
+    @Test
+    void rejectsInvalidJson() {
+        String[] invalid = {
+                "",
+                "{",
+                "{\"a\": {\"k\": 1}",
+                "{\"a\" {\"k\": 1}}",
+                "{\"a\": {\"k\": 1}} x",
+                "{\"a\": {\"k\": \"unterminated}}",
+                "{\"a\": {\"k\": [1 2]}}",
+                "{a: {}}",
+        };
+        for (String json : invalid) {
+            assertThrows(JSONException.class, () -> parse(json), json);
+        }
+    }
+
+    @Test
+    void rejectsInvalidSkippedValues() {
+        String[] invalid = { "tru", "nul", "falsey", "1.2.3", "1e", "-", "+1", ".5", "1e5-3", "x", "\"\\u00zz\"" };
+        for (String value : invalid) {
+            // Registered, unknown and deferred values are all checked
+            assertThrows(JSONException.class, () -> valueOf(value), value);
+            assertThrows(JSONException.class, () -> parse("{\"a\": {\"u\": " + value + "}}"), value);
+            RecordingSink sink = new RecordingSink();
+            sink.deferMode = "b";
+            assertThrows(JSONException.class, () -> ConfigParser.parse("{\"b\": {\"k\": " + value + "}}", sink),
+                    value);
+        }
+        String[] valid = { "true", "false", "null", "0", "-0.5", "5.", "-.5", "1E+5", "01" };
+        for (String value : valid) {
+            RecordingSink sink = new RecordingSink();
+            sink.deferMode = "b";
+            ConfigParser.parse("{\"a\": {\"u\": " + value + "}, \"b\": {\"k\": " + value + "}}", sink);
+            assertEquals(value, sink.unknown.get("a/u"));
+            assertTrue(sink.deferred.containsKey("b"), value);
+        }
+    }
+}
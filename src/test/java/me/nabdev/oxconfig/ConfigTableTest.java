@@ -0,0 +1,235 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ConfigTable: the key index, batch reads and writes, and the
+ * committed snapshots (copy-on-write, undo and changedSince())
+ */
+class ConfigTableTest {
+    private static final String[] modes = { "m0", "m1" };
+    private static final String config = "{\"mode\": \"m0\", \"unknown\": 1, "
+            + "\"m0\": {\"table/a\": 1, \"table/b\": 2, \"table/late\": 3, \"table/z\": {\"x\": 1}}, "
+            + "\"m1\": {\"table/a\": 10, \"table/b\": 20}}";
+    private int a;
+    private int b;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-table-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        ModeSelector.modes = modes;
+        new ConfigurableDouble(0, "table/a");
+        new ConfigurableDouble(0, "table/b");
+        OxConfig.registerPendingKeys();
+        a = ConfigTable.idOf("table/a");
+        b = ConfigTable.idOf("table/b");
+        // m1 stays deferred until it is used
+        ConfigTable.load(config, "m0");
+        ConfigTable.commit();
+    }
+
+    private static String write(ConfigTable.Snapshot snapshot) {
+        JsonWriter writer = new JsonWriter();
+        writer.reset(false);
+        snapshot.write(writer);
+        return writer.toString();
+    }
+
+    @Test
+    void indexesKeysInRegistrationOrder() {
+        assertEquals(0, a);
+        assertEquals(1, b);
+        assertEquals(2, ConfigTable.size());
+        assertEquals("table/b", ConfigTable.keyOf(b));
+        assertEquals(-1, ConfigTable.idOf("table/late"));
+        assertEquals(a, ConfigTable.register("table/a", ConfigTable.configurableOf(a)));
+        assertEquals(2, ConfigTable.size());
+    }
+
+    @Test
+    void readsABatchOfKeys() {
+        ConfigTable.Batch all = ConfigTable.getAll(1, null, null);
+        assertArrayEquals(new String[] { "table/a", "table/b" }, all.keys);
+        assertArrayEquals(new Object[] { 10, 20 }, all.values);
+        assertSame(ConfigTable.configurableOf(b), all.configurables[1]);
+        assertFalse(all.ensured);
+
+        new ConfigurableDouble(0, "table/new");
+        OxConfig.registerPendingKeys();
+        int added = ConfigTable.idOf("table/new");
+        ConfigTable.Batch some = ConfigTable.getAll(0, new int[] { added, a }, null);
+        assertArrayEquals(new Object[] { null, 1 }, some.values);
+    }
+
+    @Test
+    void ensuresABatchOfKeys() {
+        new ConfigurableDouble(0, "table/new");
+        OxConfig.registerPendingKeys();
+        int added = ConfigTable.idOf("table/new");
+        ConfigTable.Batch batch = ConfigTable.getAll(0, new int[] { a, added }, configurable -> 7.0);
+        assertTrue(batch.ensured);
+        assertArrayEquals(new Object[] { 1, 7.0 }, batch.values);
+        // The deferred mode gets the default once it is parsed
+        assertEquals(7.0, ConfigTable.get(1, added));
+        assertFalse(ConfigTable.getAll(0, null, configurable -> 8.0).ensured);
+    }
+
+    @Test
+    void writesABatchOfEdits() {
+        long v0 = ConfigTable.commit();
+        boolean[] written = ConfigTable.setAll(new int[] { 0, 0, 1 }, new int[] { a, b, a },
+                new Object[] { 1, 5.0, null }, new String[] { null, null, "kept" });
+        // The first edit changes nothing, the last only the comment
+        assertArrayEquals(new boolean[] { false, true, true }, written);
+        assertEquals(5.0, ConfigTable.get(0, b));
+        assertEquals(10, ConfigTable.get(1, a));
+        assertEquals("kept", ConfigTable.getComment(1, a));
+        ConfigTable.commit();
+        // A new comment is a change too
+        assertArrayEquals(new int[] { a, b }, ConfigTable.changedSince(v0));
+    }
+
+    @Test
+    void commitsOnlyWhenSomethingChanged() {
+        ConfigTable.Snapshot first = ConfigTable.committed();
+        assertEquals(first.version(), ConfigTable.commit());
+        assertSame(first, ConfigTable.committed());
+
+        ConfigTable.set(0, a, 5.0, null);
+        long version = ConfigTable.commit();
+        assertTrue(version > first.version());
+        assertEquals(version, ConfigTable.latestVersion());
+    }
+
+    @Test
+    void snapshotsAreNotChangedByLaterEdits() {
+        ConfigTable.Snapshot snapshot = ConfigTable.committed();
+        String before = write(snapshot);
+
+        ConfigTable.set(0, a, 5.0, "edited");
+        ConfigTable.copy(0, 1, null);
+        // Takes the key out of the unknown keys the snapshot shares
+        new ConfigurableDouble(0, "table/late");
+        OxConfig.registerPendingKeys();
+        ConfigTable.setRootMode("m1");
+        ConfigTable.commit();
+
+        assertEquals(before, write(snapshot));
+        assertNotEquals(before, write(ConfigTable.committed()));
+        assertEquals(5.0, ConfigTable.get(1, a));
+    }
+
+    @Test
+    void writesTheRootModeFirst() {
+        String json = write(ConfigTable.committed());
+        assertTrue(json.startsWith("{\"mode\":\"m0\","), json);
+        // Deferred modes are written from their raw text, sorted like the rest
+        assertTrue(json.contains("\"m1\":{\"table/a\":10,\"table/b\":20}"), json);
+    }
+
+    @Test
+    void findsTheKeysChangedSinceAVersion() {
+        long v0 = ConfigTable.commit();
+        ConfigTable.set(0, a, 5.0, null);
+        long v1 = ConfigTable.commit();
+        // Parses m1, which doesn't change it
+        ConfigTable.get(1, b);
+        assertEquals(v1, ConfigTable.commit());
+        ConfigTable.set(1, b, 21.0, null);
+        long v2 = ConfigTable.commit();
+
+        assertArrayEquals(new int[] { a, b }, ConfigTable.changedSince(v0));
+        assertArrayEquals(new int[] { b }, ConfigTable.changedSince(v1));
+        assertArrayEquals(new int[0], ConfigTable.changedSince(v2));
+        assertNull(ConfigTable.changedSince(-2));
+    }
+
+    @Test
+    void ignoresEditsToTheSameValue() {
+        long v0 = ConfigTable.commit();
+        ConfigTable.set(0, a, 1, null);
+        assertNotEquals(v0, ConfigTable.commit());
+        assertArrayEquals(new int[0], ConfigTable.changedSince(v0));
+    }
+
+    @Test
+    void undoesCommittedChanges() {
+        ConfigTable.set(0, a, 5.0, null);
+        ConfigTable.commit();
+        ConfigTable.set(0, a, 6.0, null);
+        ConfigTable.set(1, b, 21.0, null);
+        long edited = ConfigTable.commit();
+
+        assertTrue(ConfigTable.undo());
+        assertTrue(ConfigTable.latestVersion() > edited);
+        assertEquals(5.0, ConfigTable.get(0, a));
+        assertEquals(20, ConfigTable.get(1, b));
+
+        assertTrue(ConfigTable.undo());
+        assertEquals(1, ConfigTable.get(0, a));
+    }
+
+    @Test
+    void doesNotUndoAcrossAChangeOfModes() {
+        ConfigTable.set(0, a, 5.0, null);
+        ConfigTable.commit();
+        ModeSelector.modes = new String[] { "m0", "m1", "m2" };
+        ConfigTable.commit();
+        assertFalse(ConfigTable.undo());
+        assertEquals(5.0, ConfigTable.get(0, a));
+    }
+
+    @Test
+    void doesNotUndoAcrossALoad() {
+        ConfigTable.set(0, a, 5.0, null);
+        ConfigTable.Snapshot edited = ConfigTable.snapshot();
+        ConfigTable.load(config, "m0");
+        ConfigTable.commit();
+        ConfigTable.set(0, a, 6.0, null);
+        ConfigTable.commit();
+
+        assertTrue(ConfigTable.undo());
+        assertEquals(1, ConfigTable.get(0, a));
+        assertFalse(ConfigTable.undo());
+        assertEquals(1, ConfigTable.get(0, a));
+        assertThrows(IllegalStateException.class, () -> ConfigTable.restore(edited));
+    }
+
+    @Test
+    void keepsKeysRegisteredAfterTheUndoneChange() {
+        ConfigTable.set(0, a, 5.0, null);
+        ConfigTable.commit();
+        new ConfigurableDouble(0, "table/new");
+        OxConfig.registerPendingKeys();
+        int added = ConfigTable.idOf("table/new");
+        ConfigTable.set(0, added, 7.0, null);
+        ConfigTable.commit();
+
+        assertTrue(ConfigTable.undo());
+        assertEquals(7.0, ConfigTable.get(0, added));
+        assertTrue(ConfigTable.undo());
+        assertEquals(1, ConfigTable.get(0, a));
+        assertEquals(7.0, ConfigTable.get(0, added));
+    }
+}
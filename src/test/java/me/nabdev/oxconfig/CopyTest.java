@@ -0,0 +1,117 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that copying between modes is done in one pass, and only runs the
+ * setters of values that changed in the current mode
+ */
+class CopyTest {
+    private static final String config = "{\"mode\": \"competition\", "
+            + "\"competition\": {\"copy/a\": 1, \"copy/b\": 2, \"copyclass/x\": 3}, "
+            + "\"presentation\": {\"copy/a\": 1, \"copy/b\": {\"value\": 5, \"comment\": \"tuned\"}, "
+            + "\"copyclass/x\": 6}, "
+            + "\"simulation\": {\"copy/a\": 1, \"copy/b\": 2, \"copyclass/x\": 3}}";
+    private final List<String> calls = new ArrayList<>();
+    private int a;
+    private int b;
+    private int x;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-copy-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "copy/a", value -> calls.add("a"));
+        new ConfigurableDouble(0, "copy/b", value -> calls.add("b"));
+        new TestClass();
+        OxConfig.registerPendingKeys();
+        a = ConfigTable.idOf("copy/a");
+        b = ConfigTable.idOf("copy/b");
+        x = ConfigTable.idOf("copyclass/x");
+        ConfigTable.load(config, "competition");
+        OxConfig.reloadConfig();
+        ConfigTable.commit();
+        calls.clear();
+    }
+
+    private static void copy(String source, String dest, String classKey) {
+        JSONObject command = new JSONObject().put("type", "copy").put("source", source).put("dest", dest);
+        if (classKey != null)
+            command.put("class", classKey);
+        OxConfig.applyCommand(command);
+        ConfigTable.commit();
+    }
+
+    @Test
+    void copiesOnlyTheKeysThatDiffer() {
+        assertArrayEquals(new int[] { b, x }, ConfigTable.copy(1, 0, null));
+        assertArrayEquals(new int[0], ConfigTable.copy(1, 0, null));
+        assertEquals("tuned", ConfigTable.getComment(0, b));
+    }
+
+    @Test
+    void runsTheSettersOfChangedKeysInTheCurrentMode() {
+        copy("presentation", "competition", null);
+        assertEquals(List.of("b", "x"), calls);
+        assertEquals(5, ConfigTable.get(0, b));
+        assertEquals(6, ConfigTable.get(0, x));
+        assertEquals(1, ConfigTable.get(0, a));
+    }
+
+    @Test
+    void runsNoSettersForOtherModes() {
+        long version = ConfigTable.version(0);
+        copy("presentation", "simulation", null);
+        assertEquals(List.of(), calls);
+        assertEquals(5, ConfigTable.get(2, b));
+        assertEquals(version, ConfigTable.version(0));
+    }
+
+    @Test
+    void copiesOneClass() {
+        copy("presentation", "competition", "copyclass");
+        assertEquals(List.of("x"), calls);
+        assertEquals(6, ConfigTable.get(0, x));
+        assertEquals(2, ConfigTable.get(0, b));
+    }
+
+    /**
+     * A class with one parameter
+     */
+    private class TestClass implements ConfigurableClass {
+        private final List<ConfigurableClassParam<?>> params = List
+                .of(new ConfigurableClassDouble(this, 0, value -> calls.add("x"), "x"));
+
+        TestClass() {
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return params;
+        }
+
+        @Override
+        public String getKey() {
+            return "copyclass";
+        }
+    }
+}
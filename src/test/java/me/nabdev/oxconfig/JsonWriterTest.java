@@ -0,0 +1,126 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that JsonWriter writes the same JSON org.json would
+ */
+class JsonWriterTest {
+    private static String write(boolean pretty, Object value) {
+        JsonWriter writer = new JsonWriter();
+        writer.reset(pretty);
+        writer.value(value);
+        return writer.toString();
+    }
+
+    private static byte[] bytesOf(JsonWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Test
+    void escapesLikeJSONObjectQuote() {
+        String[] strings = {
+                "",
+                "plain",
+                "quote \" backslash \\ slash /",
+                "</script>",
+                "\b\f\n\r\t\u0000\u001f",
+                "\u007f\u0080\u009f\u00a0",
+                "\u1fff\u2000\u2028\u2029\u20ac\u20ff\u2100",
+                "caf\u00e9 \u4e2d\u6587",
+        };
+        for (String string : strings) {
+            assertEquals(JSONObject.quote(string), write(false, string), string);
+        }
+    }
+
+    @Test
+    void escapesEveryCharacterLikeJSONObjectQuote() {
+        StringBuilder builder = new StringBuilder();
+        for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+            builder.append(c);
+        }
+        for (char c = Character.MAX_SURROGATE + 1; c != 0; c++) {
+            builder.append(c);
+        }
+        String string = builder.toString();
+        assertEquals(JSONObject.quote(string), write(false, string));
+    }
+
+    @Test
+    void encodesSurrogatePairs() throws IOException {
+        String string = "a\ud83d\ude00b\ud834\udd1e";
+        String expected = JSONObject.quote(string);
+        JsonWriter writer = new JsonWriter();
+        writer.reset(false);
+        writer.value(string);
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytesOf(writer));
+
+        // Keys and raw values are encoded the same way
+        writer.reset(false);
+        writer.beginObject().key(string).rawValue("\"" + string + "\"").endObject();
+        assertArrayEquals(("{" + expected + ":" + expected + "}").getBytes(StandardCharsets.UTF_8), bytesOf(writer));
+    }
+
+    @Test
+    void writesNumbersLikeOrgJson() {
+        Object[] numbers = { 0, -7, 3000000000L, 1.5, 2.0, 1e20, -2.5e-7, 0.1f, new BigDecimal("1.50"),
+                new BigDecimal("-2e3"), new BigInteger("100000000000000000000") };
+        for (Object number : numbers) {
+            assertEquals(JSONObject.numberToString((Number) number), write(false, number));
+        }
+    }
+
+    @Test
+    void writesSortedAndIndented() {
+        JSONObject object = new JSONObject();
+        object.put("b", new JSONArray().put(1).put(true));
+        object.put("a", JSONObject.NULL);
+        object.put("c", new JSONObject());
+        assertEquals("{\"a\":null,\"b\":[1,true],\"c\":{}}", write(false, object));
+        assertEquals("{\n    \"a\": null,\n    \"b\": [\n        1,\n        true\n    ],\n    \"c\": {}\n}",
+                write(true, object));
+    }
+
+    @Test
+    void writesRawValuesSorted() {
+        String raw = "{ \"z\" : [1,  {\"y\": 1, \"x\": 2}],\n\t\"a\": {}, \"s\": \"keep  \\\" this\" }";
+        JsonWriter writer = new JsonWriter();
+        writer.reset(true);
+        writer.beginObject().key("k").rawValue(raw).endObject();
+        assertEquals("{\n    \"k\": {\n        \"a\": {},\n        \"s\": \"keep  \\\" this\",\n"
+                + "        \"z\": [\n            1,\n            {\n                \"x\": 2,\n"
+                + "                \"y\": 1\n            }\n        ]\n    }\n}", writer.toString());
+
+        writer.reset(false);
+        writer.rawValue(raw);
+        assertEquals("{\"a\":{},\"s\":\"keep  \\\" this\",\"z\":[1,{\"x\":2,\"y\":1}]}", writer.toString());
+        // The same as the decoded value
+        assertEquals(write(false, new JSONObject(raw)), writer.toString());
+    }
+
+    @Test
+    void hashesLikeTheConfigFile() throws IOException {
+        JsonWriter writer = new JsonWriter();
+        writer.reset(true);
+        writer.value(new JSONObject().put("key", "caf\u00e9 \ud83d\ude00"));
+        byte[] bytes = bytesOf(writer);
+        assertEquals(writer.toString(), new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(bytes.length, writer.length());
+        assertEquals(ConfigCache.hash(bytes, bytes.length), writer.hash());
+    }
+}
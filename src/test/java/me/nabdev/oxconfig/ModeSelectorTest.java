@@ -0,0 +1,75 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a mode set from robot code is applied on the OxConfig thread, and
+ * only becomes the current mode once its values are
+ */
+class ModeSelectorTest {
+    private static final String config = "{\"mode\": \"competition\", \"competition\": {\"select/value\": 1}, "
+            + "\"presentation\": {\"select/value\": 2}}";
+    private ModeSelector modeSelector;
+    private ConfigurableDouble value;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-mode-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        modeSelector = new ModeSelector();
+        OxConfig.modeSelector = modeSelector;
+        value = new ConfigurableDouble(0, "select/value");
+        OxConfig.registerPendingKeys();
+        ConfigTable.load(config, "competition");
+        OxConfig.reloadConfig();
+        OxConfig.hasInitialized = true;
+    }
+
+    @Test
+    void becomesCurrentOnceApplied() {
+        modeSelector.setMode("presentation");
+        assertEquals("competition", modeSelector.getMode());
+        assertEquals("presentation", modeSelector.getTargetMode());
+        assertEquals(1.0, value.getAsDouble());
+
+        OxConfig.reloadConfig();
+        assertEquals("presentation", modeSelector.getMode());
+        assertEquals("presentation", modeSelector.getTargetMode());
+        assertEquals(2.0, value.getAsDouble());
+    }
+
+    @Test
+    void queuesOneReloadPerChange() {
+        // Setting the current mode changes nothing
+        modeSelector.setMode("competition");
+        assertEquals(0, OxConfig.runQueuedCommands());
+        modeSelector.setMode("presentation");
+        modeSelector.setMode("presentation");
+        assertEquals(1, OxConfig.runQueuedCommands());
+        modeSelector.setMode("nowhere");
+        assertEquals(0, OxConfig.runQueuedCommands());
+        assertEquals("presentation", modeSelector.getTargetMode());
+    }
+
+    @Test
+    void appliesTheModeOfTheConfigInTheSameReload() {
+        JsonUtils.modifyMode("presentation");
+        OxConfig.reloadConfig();
+        assertEquals(0, OxConfig.runQueuedCommands());
+        assertEquals("presentation", modeSelector.getMode());
+        assertEquals(2.0, value.getAsDouble());
+    }
+}
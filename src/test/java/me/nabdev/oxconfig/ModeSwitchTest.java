@@ -0,0 +1,108 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that switching modes only applies the keys whose values differ between
+ * the two modes, as long as every key of the old mode is applied
+ */
+class ModeSwitchTest {
+    private static final String config = "{\"mode\": \"competition\", "
+            + "\"competition\": {\"switch/a\": 1, \"switch/b\": 2, \"switch/c\": 3}, "
+            + "\"presentation\": {\"switch/a\": 1, \"switch/b\": 5, \"switch/c\": 3}, "
+            + "\"simulation\": {\"switch/a\": 1, \"switch/b\": 2, \"switch/c\": 3}}";
+    private final List<String> calls = new ArrayList<>();
+    private boolean failB = false;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-switch-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "switch/a", value -> calls.add("a"));
+        new ConfigurableDouble(0, "switch/b", value -> {
+            if (failB)
+                throw new IllegalStateException("Setter failed");
+            calls.add("b");
+        });
+        new ConfigurableDouble(0, "switch/c", value -> calls.add("c"));
+        OxConfig.registerPendingKeys();
+        ConfigTable.load(config, "competition");
+        OxConfig.reloadConfig();
+        // Keys are only ensured on startup by default
+        OxConfig.setEnsureMode(OxConfig.EnsureMode.Never);
+        calls.clear();
+        OxConfig.resetSetterCounts();
+    }
+
+    @AfterEach
+    void resetEnsureMode() {
+        OxConfig.setEnsureMode(OxConfig.EnsureMode.Startup);
+    }
+
+    private void switchTo(String mode) {
+        calls.clear();
+        OxConfig.resetSetterCounts();
+        JsonUtils.modifyMode(mode);
+        OxConfig.reloadConfig();
+    }
+
+    @Test
+    void appliesOnlyTheKeysThatDiffer() {
+        switchTo("presentation");
+        assertEquals(List.of("b"), calls);
+        // The others weren't even compared
+        assertEquals(0, OxConfig.getSkippedSetterCount());
+        assertEquals("presentation", OxConfig.modeSelector.getMode());
+
+        switchTo("competition");
+        assertEquals(List.of("b"), calls);
+        assertEquals(0, OxConfig.getSkippedSetterCount());
+    }
+
+    @Test
+    void appliesNothingWhenReloadingTheSameMode() {
+        switchTo("competition");
+        assertEquals(List.of(), calls);
+        assertEquals(0, OxConfig.getFiredSetterCount());
+        // Only the mode itself is compared
+        assertEquals(1, OxConfig.getSkippedSetterCount());
+    }
+
+    @Test
+    void comparesEveryKeyAfterTheAppliedModeChanged() {
+        // Edited without being applied
+        JsonUtils.modifyValue("competition", "switch/c", 4.0);
+        switchTo("presentation");
+        assertEquals(List.of("b"), calls);
+        // c still has the value it was last set to, but had to be compared
+        assertEquals(2, OxConfig.getSkippedSetterCount());
+    }
+
+    @Test
+    void comparesEveryKeyAfterASetterFailed() {
+        failB = true;
+        switchTo("presentation");
+        assertEquals(List.of(), calls);
+        failB = false;
+        switchTo("competition");
+        assertEquals(List.of("b"), calls);
+        assertEquals(2, OxConfig.getSkippedSetterCount());
+    }
+}
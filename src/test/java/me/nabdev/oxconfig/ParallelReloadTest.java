@@ -0,0 +1,131 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a parallel reload applies classes at once, while the setters and
+ * commit of each class still run in order
+ */
+class ParallelReloadTest {
+    private static final int classCount = 6;
+    private static final int maxParallelism = 3;
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-parallel-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.setParallelReload(maxParallelism);
+        OxConfig.modeSelector = new ModeSelector();
+        StringBuilder config = new StringBuilder("{\"competition\": {");
+        for (int i = 0; i < classCount; i++) {
+            new TestClass("parallel" + i);
+            config.append(i == 0 ? "" : ", ").append("\"parallel").append(i).append("/a\": 1, \"parallel")
+                    .append(i).append("/b\": 2");
+        }
+        OxConfig.registerPendingKeys();
+        ConfigTable.load(config.append("}}").toString(), "competition");
+    }
+
+    @AfterEach
+    void disable() {
+        OxConfig.setParallelReload(1);
+        SetterExecutor.shutdown();
+    }
+
+    @Test
+    void appliesEveryClassBeforeReturning() {
+        OxConfig.reloadConfig();
+        assertEquals(classCount * 3, ran.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+        assertTrue(maxRunning.get() <= maxParallelism, "ran " + maxRunning.get() + " setters at once");
+    }
+
+    @Test
+    void runsTheSettersOfAClassInOrder() {
+        OxConfig.reloadConfig();
+        for (int i = 0; i < classCount; i++) {
+            String key = "parallel" + i;
+            List<String> order = new ArrayList<>();
+            synchronized (ran) {
+                for (String name : ran) {
+                    if (name.startsWith(key + "/"))
+                        order.add(name);
+                }
+            }
+            assertEquals(List.of(key + "/a", key + "/b", key + "/commit"), order);
+        }
+    }
+
+    @Test
+    void rejectsParallelismBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> OxConfig.setParallelReload(0));
+    }
+
+    private void run(String name) {
+        threads.add(Thread.currentThread());
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ran.add(name);
+        running.decrementAndGet();
+    }
+
+    /**
+     * A class with two parameters, whose setters and commit record when they ran
+     */
+    private class TestClass implements ConfigurableClass {
+        private final String key;
+        private final List<ConfigurableClassParam<?>> params = new ArrayList<>();
+
+        TestClass(String key) {
+            this.key = key;
+            params.add(new ConfigurableClassDouble(this, 0, value -> run(key + "/a"), "a"));
+            params.add(new ConfigurableClassDouble(this, 0, value -> run(key + "/b"), "b"));
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return params;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+            run(key + "/commit");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that parameters registered after the config is loaded are applied
+ * together, without reloading the keys registered before them
+ */
+class RegistrationTest {
+    private static final String config = "{\"mode\": \"competition\", \"competition\": {\"early/value\": 1, "
+            + "\"late/a\": 2, \"late/b\": 3, \"late/param\": 4}}";
+    private final List<String> calls = new ArrayList<>();
+    private Path path;
+
+    @BeforeAll
+    static void setup() {
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() throws IOException {
+        OxConfig.reset();
+        OxConfig.setEnsureMode(OxConfig.EnsureMode.Startup);
+        // A file per test, so a write left over from the last test can't change it
+        path = Files.createTempFile("oxconfig-registration-test", ".json");
+        Files.write(path, config.getBytes(StandardCharsets.UTF_8));
+        OxConfig.setConfigPath(path);
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "early/value", value -> calls.add("early"));
+        OxConfig.reloadFromDisk();
+        calls.clear();
+        OxConfig.resetSetterCounts();
+    }
+
+    @Test
+    void appliesTheParametersOfAClassTogether() {
+        TestClass late = new TestClass(calls);
+        assertEquals(-1, ConfigTable.idOf("late/a"));
+        assertEquals(List.of(), calls);
+
+        OxConfig.applyPendingRegistrations();
+        assertEquals(List.of("a", "b", "missing"), calls);
+        assertEquals(3, OxConfig.getFiredSetterCount());
+        assertEquals(1, late.commits.size());
+        assertEquals(Set.copyOf(late.params), late.commits.get(0));
+        assertEquals(3.0, ((ConfigurableClassDouble) late.params.get(1)).getAsDouble());
+        // Nothing is left to apply
+        OxConfig.applyPendingRegistrations();
+        assertEquals(1, late.commits.size());
+    }
+
+    @Test
+    void ensuresAndWritesTheNewKeys() throws IOException {
+        new ConfigurableDouble(0, "late/param", value -> calls.add("param"));
+        new TestClass(calls);
+        OxConfig.applyPendingRegistrations();
+        assertEquals(List.of("param", "a", "b", "missing"), calls);
+
+        int missing = ConfigTable.idOf("late/missing");
+        for (int mode = 0; mode < ModeSelector.modes.length; mode++) {
+            assertEquals(5.0, ConfigTable.get(mode, missing));
+        }
+        OxConfig.flushFiles();
+        JSONObject written = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        assertTrue(written.getJSONObject("presentation").has("late/missing"));
+    }
+
+    /**
+     * A class with three parameters, one of which isn't in the config
+     */
+    private static class TestClass implements ConfigurableClass {
+        private final List<ConfigurableClassParam<?>> params = new ArrayList<>();
+        private final List<Set<ConfigurableClassParam<?>>> commits = new ArrayList<>();
+
+        TestClass(List<String> calls) {
+            params.add(new ConfigurableClassDouble(this, 0, value -> calls.add("a"), "a"));
+            params.add(new ConfigurableClassDouble(this, 0, value -> calls.add("b"), "b"));
+            params.add(new ConfigurableClassDouble(this, 5, value -> calls.add("missing"), "missing"));
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return params;
+        }
+
+        @Override
+        public String getKey() {
+            return "late";
+        }
+
+        @Override
+        public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+            commits.add(Set.copyOf(changed));
+        }
+    }
+}
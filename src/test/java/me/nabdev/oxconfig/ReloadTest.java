@@ -0,0 +1,109 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a reload only calls the setters of values that changed since they
+ * were last applied
+ */
+class ReloadTest {
+    private static final String mode = "competition";
+    private static final String config = "{\"mode\": \"competition\", \"competition\": "
+            + "{\"reload/double\": 1.5, \"reload/list\": [1, 2], \"reload/string\": \"a\"}}";
+    private final List<String> calls = new ArrayList<>();
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-reload-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "reload/double", value -> calls.add("double"));
+        new ConfigurableParameter<>(new double[] { 0 }, "reload/list", value -> calls.add("list"));
+        // Already has the value in the config
+        new ConfigurableParameter<>("a", "reload/string", value -> calls.add("string"));
+        OxConfig.registerPendingKeys();
+        ConfigTable.load(config, mode);
+    }
+
+    @AfterEach
+    void resetTolerance() {
+        OxConfig.setFloatTolerance(0);
+    }
+
+    private void reloadAgain() {
+        OxConfig.reloadConfig();
+        calls.clear();
+        OxConfig.resetSetterCounts();
+    }
+
+    @Test
+    void callsEverySetterOnTheFirstReload() {
+        OxConfig.reloadConfig();
+        // The string already had its value, but its setter was never called
+        assertEquals(List.of("double", "list", "string"), calls);
+        assertEquals(4, OxConfig.getFiredSetterCount());
+    }
+
+    @Test
+    void skipsTheSettersOfUnchangedValues() {
+        reloadAgain();
+        OxConfig.reloadConfig();
+        assertEquals(List.of(), calls);
+        assertEquals(0, OxConfig.getFiredSetterCount());
+        // Including the mode
+        assertEquals(4, OxConfig.getSkippedSetterCount());
+    }
+
+    @Test
+    void callsOnlyTheSettersOfChangedValues() {
+        reloadAgain();
+        JsonUtils.modifyValue(mode, "reload/list", new JSONArray().put(1).put(3));
+        OxConfig.reloadConfig();
+        assertEquals(List.of("list"), calls);
+        assertEquals(1, OxConfig.getFiredSetterCount());
+        assertEquals(3, OxConfig.getSkippedSetterCount());
+    }
+
+    @Test
+    void comparesDecodedValues() {
+        reloadAgain();
+        JsonUtils.modifyValue(mode, "reload/double", new BigDecimal("1.50"));
+        OxConfig.reloadConfig();
+        assertEquals(List.of(), calls);
+
+        JsonUtils.modifyValue(mode, "reload/double", 2);
+        OxConfig.reloadConfig();
+        assertEquals(List.of("double"), calls);
+    }
+
+    @Test
+    void skipsChangesWithinTheFloatTolerance() {
+        OxConfig.setFloatTolerance(0.01);
+        reloadAgain();
+        JsonUtils.modifyValue(mode, "reload/double", 1.505);
+        OxConfig.reloadConfig();
+        assertEquals(List.of(), calls);
+
+        JsonUtils.modifyValue(mode, "reload/double", 1.6);
+        OxConfig.reloadConfig();
+        assertEquals(List.of("double"), calls);
+    }
+}
@@ -0,0 +1,132 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the SetterExecutor runs the tasks of a key in order, and at most
+ * as many keys at once as it has threads
+ */
+class SetterExecutorTest {
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @BeforeAll
+    static void setup() {
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @AfterEach
+    void disable() throws InterruptedException {
+        awaitIdle();
+        SetterExecutor.setEnabled(false);
+        SetterExecutor.setMaxParallelism(0);
+        SetterExecutor.parallelBatches = false;
+        // Shrinking a pool only stops its extra threads once they notice, so every
+        // test starts with a new one
+        SetterExecutor.shutdown();
+    }
+
+    private static void awaitIdle() throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        SetterExecutor.runWhenIdle(idle::countDown);
+        assertTrue(idle.await(10, TimeUnit.SECONDS));
+    }
+
+    private Runnable task(String name, long sleepMs) {
+        return () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.add(name);
+            running.decrementAndGet();
+        };
+    }
+
+    @Test
+    void runsTasksOnTheSubmittingThreadByDefault() {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        SetterExecutor.submit("key", () -> threads.add(Thread.currentThread()));
+        assertEquals(List.of(caller), threads);
+    }
+
+    @Test
+    void runsTheTasksOfAKeyInOrder() throws InterruptedException {
+        SetterExecutor.setEnabled(true);
+        for (int i = 0; i < 20; i++) {
+            SetterExecutor.submit("a", task("a" + i, i % 3));
+            SetterExecutor.submit("b", task("b" + i, 0));
+        }
+        awaitIdle();
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        for (String name : ran) {
+            (name.startsWith("a") ? a : b).add(name);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals("a" + i, a.get(i));
+            assertEquals("b" + i, b.get(i));
+        }
+    }
+
+    @Test
+    void limitsHowManyKeysRunAtOnce() throws InterruptedException {
+        SetterExecutor.setMaxParallelism(2);
+        SetterExecutor.setEnabled(true);
+        for (int i = 0; i < 6; i++) {
+            SetterExecutor.submit("key" + i, task("key" + i, 30));
+        }
+        awaitIdle();
+        assertEquals(6, ran.size());
+        assertTrue(maxRunning.get() <= 2, "ran " + maxRunning.get() + " at once");
+    }
+
+    @Test
+    void keepsRunningAKeyAfterATaskFails() throws InterruptedException {
+        SetterExecutor.setEnabled(true);
+        SetterExecutor.submit("key", task("first", 0));
+        SetterExecutor.submit("key", () -> {
+            throw new AssertionError("Setter failed");
+        });
+        SetterExecutor.submit("key", task("last", 0));
+        awaitIdle();
+        assertEquals(List.of("first", "last"), ran);
+    }
+
+    @Test
+    void waitsForEveryTaskOfABatch() {
+        SetterExecutor.parallelBatches = true;
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        SetterExecutor.runBatch(() -> {
+            for (int i = 0; i < 4; i++) {
+                SetterExecutor.submit("key" + i, task("key" + i, 20));
+                SetterExecutor.submit("key" + i, () -> threads.add(Thread.currentThread()));
+            }
+        });
+        assertEquals(4, ran.size());
+        assertEquals(4, threads.size());
+        assertFalse(threads.contains(caller));
+        // Outside of a batch, tasks run on the caller again
+        SetterExecutor.submit("key", () -> threads.add(Thread.currentThread()));
+        assertSame(caller, threads.get(4));
+    }
+}
@@ -0,0 +1,133 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the table of the slowest setters and classes
+ */
+class SetterStatsTest {
+    private static final String mode = "competition";
+    private static final long slowMs = 20;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-stats-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "stats/fast");
+        new ConfigurableDouble(0, "stats/slow", value -> sleep());
+        new TestClass();
+        OxConfig.registerPendingKeys();
+        ConfigTable.load("{\"competition\": {\"stats/fast\": 1, \"stats/slow\": 1, "
+                + "\"statsclass/a\": 1, \"statsclass/b\": 1}}", mode);
+        OxConfig.reloadConfig();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(slowMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets each row of a table by its name
+     */
+    private static Map<String, JSONArray> rows(JSONArray table) {
+        Map<String, JSONArray> rows = new HashMap<>();
+        for (int i = 0; i < table.length(); i++) {
+            rows.put(table.getJSONArray(i).getString(0), table.getJSONArray(i));
+        }
+        return rows;
+    }
+
+    @Test
+    void countsEveryCall() {
+        JsonUtils.modifyValue(mode, "stats/fast", 2.0);
+        OxConfig.reloadConfig();
+        Map<String, JSONArray> setters = rows(SetterStats.slowSetters());
+        assertEquals(2, setters.get("stats/fast").getLong(1));
+        assertEquals(1, setters.get("stats/slow").getLong(1));
+        assertEquals(1, setters.get("statsclass/a").getLong(1));
+    }
+
+    @Test
+    void ranksTheSlowestFirst() {
+        JSONArray slowest = SetterStats.slowSetters().getJSONArray(0);
+        assertEquals("stats/slow", slowest.getString(0));
+        assertTrue(slowest.getDouble(3) >= slowMs, slowest.toString());
+
+        // A class counts its setters and its commit
+        JSONArray slowestClass = SetterStats.slowClasses().getJSONArray(0);
+        assertEquals("statsclass", slowestClass.getString(0));
+        assertEquals(3, slowestClass.getLong(1));
+        assertTrue(slowestClass.getDouble(3) >= slowMs, slowestClass.toString());
+    }
+
+    @Test
+    void limitsTheTableSize() {
+        int size = SetterStats.tableSize;
+        try {
+            SetterStats.tableSize = 2;
+            assertEquals(2, SetterStats.slowSetters().length());
+        } finally {
+            SetterStats.tableSize = size;
+        }
+        // Every key, and the mode
+        assertEquals(5, SetterStats.slowSetters().length());
+    }
+
+    @Test
+    void forgetsTimesOnReset() {
+        OxConfig.resetSetterTimes();
+        assertEquals(0, SetterStats.slowSetters().length());
+        assertEquals(0, SetterStats.slowClasses().length());
+    }
+
+    /**
+     * A class with two fast parameters and a slow commit
+     */
+    private static class TestClass implements ConfigurableClass {
+        private final List<ConfigurableClassParam<?>> params = List.of(
+                new ConfigurableClassDouble(this, 0, "a"), new ConfigurableClassDouble(this, 0, "b"));
+
+        TestClass() {
+            OxConfig.registerConfigurableClass(this);
+        }
+
+        @Override
+        public List<ConfigurableClassParam<?>> getParameters() {
+            return params;
+        }
+
+        @Override
+        public String getKey() {
+            return "statsclass";
+        }
+
+        @Override
+        public void onParametersCommitted(Set<ConfigurableClassParam<?>> changed) {
+            sleep();
+        }
+    }
+}
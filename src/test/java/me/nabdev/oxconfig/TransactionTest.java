@@ -0,0 +1,133 @@
+package me.nabdev.oxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a transaction applies all of its edits at once, or none of them
+ */
+class TransactionTest {
+    private static final String config = "{\"mode\": \"competition\", "
+            + "\"competition\": {\"tx/a\": 1, \"tx/b\": 2}, "
+            + "\"presentation\": {\"tx/a\": 1, \"tx/b\": 2}, "
+            + "\"simulation\": {\"tx/a\": 1, \"tx/b\": 2}}";
+    private final List<String> calls = new ArrayList<>();
+    private int a;
+    private int b;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        OxConfig.setConfigPath(Files.createTempFile("oxconfig-transaction-test", ".json"));
+        OxConfig.setSimulation(false);
+        OxConfig.loggingMode = OxConfig.LoggingMode.None;
+    }
+
+    @BeforeEach
+    void load() {
+        OxConfig.reset();
+        OxConfig.modeSelector = new ModeSelector();
+        new ConfigurableDouble(0, "tx/a", value -> calls.add("a"));
+        new ConfigurableDouble(0, "tx/b", value -> calls.add("b"));
+        OxConfig.registerPendingKeys();
+        a = ConfigTable.idOf("tx/a");
+        b = ConfigTable.idOf("tx/b");
+        ConfigTable.load(config, "competition");
+        OxConfig.reloadConfig();
+        ConfigTable.commit();
+        calls.clear();
+    }
+
+    private static void apply() {
+        assertEquals(1, OxConfig.runQueuedCommands());
+        ConfigTable.commit();
+    }
+
+    @Test
+    void appliesEveryEditAtOnce() {
+        OxConfig.beginTransaction()
+                .set("tx/a", 3.0)
+                .set("presentation", "tx/b", 4.0)
+                .setAll("tx/b", 5.0)
+                .setComment("tx/a", "tuned")
+                .commit();
+        // Nothing is applied until the OxConfig thread runs it
+        assertEquals(1, ConfigTable.get(0, a));
+        apply();
+        assertEquals(List.of("a", "b"), calls);
+        assertEquals(3, ((Number) ConfigTable.get(0, a)).intValue());
+        for (int mode = 0; mode < 3; mode++) {
+            assertEquals(5, ((Number) ConfigTable.get(mode, b)).intValue());
+            assertEquals("tuned", ConfigTable.getComment(mode, a));
+        }
+    }
+
+    @Test
+    void skipsEditsThatChangeNothing() {
+        long version = ConfigTable.version(0);
+        OxConfig.beginTransaction().set("tx/a", 1.0).set("tx/b", 2).commit();
+        apply();
+        assertEquals(List.of(), calls);
+        assertEquals(version, ConfigTable.version(0));
+
+        OxConfig.beginTransaction().set("tx/a", 1.0).set("tx/b", 6.0).commit();
+        apply();
+        assertEquals(List.of("b"), calls);
+    }
+
+    @Test
+    void rejectsInvalidEdits() {
+        ConfigTransaction transaction = OxConfig.beginTransaction().set("tx/a", 3.0);
+        assertThrows(IllegalArgumentException.class, () -> transaction.set("tx/missing", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> transaction.set("nowhere", "tx/a", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> transaction.set("tx/b", "text"));
+        assertThrows(IllegalArgumentException.class, () -> transaction.set("root/mode", "presentation"));
+        assertEquals(1, transaction.size());
+        assertEquals(0, OxConfig.runQueuedCommands());
+    }
+
+    @Test
+    void appliesNothingIfAnEditIsNoLongerValid() {
+        long version = ConfigTable.version(0);
+        OxConfig.applyTransaction(List.of(new ConfigTransaction.Edit(null, "tx/a", 3.0, null),
+                new ConfigTransaction.Edit(null, "tx/missing", 1.0, null)));
+        OxConfig.applyTransaction(List.of(new ConfigTransaction.Edit(null, "tx/a", 3.0, null),
+                new ConfigTransaction.Edit("nowhere", "tx/b", 1.0, null)));
+        ConfigTable.commit();
+        assertEquals(List.of(), calls);
+        assertEquals(1, ConfigTable.get(0, a));
+        assertEquals(version, ConfigTable.version(0));
+    }
+
+    @Test
+    void discardsEditsOnRollback() {
+        ConfigTransaction transaction = OxConfig.beginTransaction().set("tx/a", 3.0);
+        transaction.rollback();
+        assertEquals(0, transaction.size());
+        assertEquals(0, OxConfig.runQueuedCommands());
+        assertEquals(1, ConfigTable.get(0, a));
+    }
+
+    @Test
+    void finishesOnlyOnce() {
+        ConfigTransaction committed = OxConfig.beginTransaction().set("tx/a", 3.0);
+        committed.commit();
+        assertThrows(IllegalStateException.class, committed::commit);
+        assertThrows(IllegalStateException.class, committed::rollback);
+        assertThrows(IllegalStateException.class, () -> committed.set("tx/b", 1.0));
+
+        ConfigTransaction rolledBack = OxConfig.beginTransaction();
+        rolledBack.rollback();
+        assertThrows(IllegalStateException.class, rolledBack::commit);
+        apply();
+        assertEquals(List.of("a"), calls);
+    }
+}